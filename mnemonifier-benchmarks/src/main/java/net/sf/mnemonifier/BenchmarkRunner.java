@@ -0,0 +1,41 @@
+package net.sf.mnemonifier;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Main class of the benchmarks JAR. Accepts the same command line options as
+ * the JMH main class, but always enables the GC profiler so that allocation
+ * rates are reported together with throughput.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class BenchmarkRunner {
+
+	/**
+	 * Main method for benchmark runner.
+	 *
+	 * @param args
+	 *            JMH command line options
+	 * @throws CommandLineOptionException
+	 *             if the command line options are invalid
+	 * @throws IOException
+	 *             if the help text cannot be printed
+	 * @throws RunnerException
+	 *             if running the benchmarks fails
+	 */
+	public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+		CommandLineOptions cmdOptions = new CommandLineOptions(args);
+		if (cmdOptions.shouldHelp()) {
+			cmdOptions.showHelp();
+			return;
+		}
+		new Runner(new OptionsBuilder().parent(cmdOptions).addProfiler(GCProfiler.class).build()).run();
+	}
+}
@@ -0,0 +1,70 @@
+package net.sf.mnemonifier;
+
+import java.util.Random;
+
+/**
+ * Generated text corpora used by the benchmarks. Every corpus is generated
+ * from a fixed seed, so that all benchmark runs use the same input.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public enum Corpus {
+
+	/** Pure ASCII text, which does not need any encoding. */
+	ASCII(0, "", 0),
+
+	/** ASCII text with many square brackets that need escaping. */
+	ASCII_BRACKETS(0, "[]", 10),
+
+	/** Western European text with accented letters. */
+	WESTERN_EUROPEAN(0, "äöüßÄÖÜéèêàâçñÉÀøåæœ", 8),
+
+	/** Cyrillic and Greek text. */
+	CYRILLIC_GREEK(0, "абвгдежзийклмнопрстуфхцчшщыьэюяαβγδεζηθικλμνξοπρστυφχψω", 85),
+
+	/** Chinese, Japanese and Korean text. */
+	CJK(0x4E00, "。、「」", 95),
+
+	/** Text with emoji outside of the Basic Multilingual Plane. */
+	EMOJI(0x1F600, "", 15);
+
+	private static final String ASCII_LETTERS = "etaoinshrdlucmfwypvbgkqjxzETAOINSHRDLU";
+
+	private final int codepointBase;
+	private final String specialChars;
+	private final int specialPercentage;
+
+	private Corpus(int codepointBase, String specialChars, int specialPercentage) {
+		this.codepointBase = codepointBase;
+		this.specialChars = specialChars;
+		this.specialPercentage = specialPercentage;
+	}
+
+	/**
+	 * Generate text of this corpus.
+	 *
+	 * @param length
+	 *            length of the text in chars
+	 * @return generated text
+	 */
+	public String generate(int length) {
+		Random random = new Random(42);
+		StringBuilder sb = new StringBuilder(length);
+		while (sb.length() < length) {
+			int codepoint;
+			if (sb.length() % 8 == 7) {
+				codepoint = ' ';
+			} else if (random.nextInt(100) >= specialPercentage) {
+				codepoint = ASCII_LETTERS.charAt(random.nextInt(ASCII_LETTERS.length()));
+			} else if (codepointBase != 0 && (specialChars.length() == 0 || random.nextInt(10) != 0)) {
+				codepoint = codepointBase + random.nextInt(0x50);
+			} else {
+				codepoint = specialChars.charAt(random.nextInt(specialChars.length()));
+			}
+			if (sb.length() + Character.charCount(codepoint) > length)
+				codepoint = '.';
+			sb.appendCodePoint(codepoint);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,42 @@
+package net.sf.mnemonifier;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark for {@link Mnemonifier#mnemonify(String)}.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MnemonifyBenchmark {
+
+	@Param
+	Corpus corpus;
+
+	@Param({ "10", "1000", "100000", "10000000" })
+	int size;
+
+	@Param({ "false", "true" })
+	boolean compact;
+
+	private Mnemonifier mnemonifier;
+	private String input;
+
+	@Setup
+	public void setUp() {
+		mnemonifier = new Mnemonifier(MnemonicTable.getDefault(), compact);
+		input = corpus.generate(size);
+	}
+
+	@Benchmark
+	public String mnemonify() {
+		return mnemonifier.mnemonify(input);
+	}
+}
@@ -0,0 +1,28 @@
+package net.sf.mnemonifier;
+
+/**
+ * Compare the size of normal and compact mnemonified output for all corpora.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class SizeComparison {
+
+	/**
+	 * Main method for size comparison.
+	 *
+	 * @param args
+	 *            optional length of the generated text in chars
+	 */
+	public static void main(String[] args) {
+		int length = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		Mnemonifier normal = new Mnemonifier();
+		Mnemonifier compact = new Mnemonifier(MnemonicTable.getDefault(), true);
+		System.out.println(String.format("%-16s %12s %12s %8s", "Corpus", "Normal", "Compact", "Saved"));
+		for (Corpus corpus : Corpus.values()) {
+			String input = corpus.generate(length);
+			int normalSize = normal.mnemonify(input).length();
+			int compactSize = compact.mnemonify(input).length();
+			System.out.println(String.format("%-16s %12d %12d %7.1f%%", corpus, normalSize, compactSize, 100.0 - compactSize * 100.0 / normalSize));
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package net.sf.mnemonifier;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark for {@link UnidecodeMnemonifier}, which differs from
+ * {@link Mnemonifier} only for codepoints encoded as hex code.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnidecodeMnemonifierBenchmark {
+
+	@Param({ "CYRILLIC_GREEK", "CJK", "EMOJI" })
+	Corpus corpus;
+
+	@Param({ "10", "1000", "100000", "10000000" })
+	int size;
+
+	private Mnemonifier mnemonifier;
+	private String input, encoded;
+
+	@Setup
+	public void setUp() {
+		mnemonifier = new UnidecodeMnemonifier();
+		input = corpus.generate(size);
+		encoded = mnemonifier.mnemonify(input);
+	}
+
+	@Benchmark
+	public String mnemonify() {
+		return mnemonifier.mnemonify(input);
+	}
+
+	@Benchmark
+	public String unmnemonify() {
+		return mnemonifier.unmnemonify(encoded, true);
+	}
+}
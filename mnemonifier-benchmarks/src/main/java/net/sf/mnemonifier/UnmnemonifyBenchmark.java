@@ -0,0 +1,43 @@
+package net.sf.mnemonifier;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark for {@link Mnemonifier#unmnemonify(String, boolean)}. The input is
+ * the mnemonified form of the corpus text.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnmnemonifyBenchmark {
+
+	@Param
+	Corpus corpus;
+
+	@Param({ "10", "1000", "100000", "10000000" })
+	int size;
+
+	@Param({ "false", "true" })
+	boolean strict;
+
+	private Mnemonifier mnemonifier;
+	private String input;
+
+	@Setup
+	public void setUp() {
+		mnemonifier = new Mnemonifier();
+		input = mnemonifier.mnemonify(corpus.generate(size));
+	}
+
+	@Benchmark
+	public String unmnemonify() {
+		return mnemonifier.unmnemonify(input, strict);
+	}
+}
@@ -0,0 +1,226 @@
+package net.sf.mnemonifier;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link Flow.Processor} that mnemonifies or unmnemonifies a stream of text
+ * chunks, using a {@link MnemonifyingEncoder} or an
+ * {@link UnmnemonifyingDecoder}. Tokens and surrogate pairs may be split
+ * across chunks.
+ *
+ * <p>
+ * Every input chunk produces at most one output chunk, so demand of the
+ * subscriber is passed upstream unchanged. Input chunks that do not produce
+ * any output (because they end inside a token) are replaced by requesting
+ * another chunk. Remaining output at the end of the input is published when
+ * the subscriber requests it, followed by completion.
+ *
+ * <p>
+ * A processor supports a single subscriber, which has to subscribe before the
+ * processor subscribes to its publisher, and a single subscription. When
+ * strict decoding rules are used and the input is invalid, the upstream
+ * subscription is cancelled and the subscriber receives an
+ * {@link IllegalArgumentException}.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class MnemonifierProcessor implements Flow.Processor<CharSequence, String> {
+
+	private final MnemonifyingEncoder encoder;
+	private final UnmnemonifyingDecoder decoder;
+	private final AtomicLong demand = new AtomicLong();
+	private final AtomicReference<String> tail = new AtomicReference<>();
+	private Flow.Subscription upstream;
+	private long unrequested = 0;
+	private volatile Flow.Subscriber<? super String> subscriber;
+	private volatile boolean done = false;
+
+	private MnemonifierProcessor(MnemonifyingEncoder encoder, UnmnemonifyingDecoder decoder) {
+		this.encoder = encoder;
+		this.decoder = decoder;
+	}
+
+	/**
+	 * Create a processor that mnemonifies its input.
+	 *
+	 * @param mnemonifier
+	 *            mnemonifier to use for encoding
+	 * @return the new processor
+	 */
+	public static MnemonifierProcessor mnemonifying(Mnemonifier mnemonifier) {
+		return new MnemonifierProcessor(new MnemonifyingEncoder(mnemonifier), null);
+	}
+
+	/**
+	 * Create a processor that unmnemonifies its input.
+	 *
+	 * @param mnemonifier
+	 *            mnemonifier to use for decoding
+	 * @param strict
+	 *            whether to use strict decoding rules
+	 * @return the new processor
+	 */
+	public static MnemonifierProcessor unmnemonifying(Mnemonifier mnemonifier, boolean strict) {
+		return new MnemonifierProcessor(null, new UnmnemonifyingDecoder(mnemonifier, strict));
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super String> subscriber) {
+		synchronized (this) {
+			if (this.subscriber == null) {
+				this.subscriber = subscriber;
+				subscriber = null;
+			}
+		}
+		if (subscriber != null) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				public void request(long n) {
+				}
+
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+			return;
+		}
+		this.subscriber.onSubscribe(new Flow.Subscription() {
+			public void request(long n) {
+				requestDownstream(n);
+			}
+
+			public void cancel() {
+				done = true;
+				tail.set(null);
+				cancelUpstream();
+			}
+		});
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		long n;
+		synchronized (this) {
+			if (upstream != null) {
+				n = -1;
+			} else {
+				upstream = subscription;
+				n = unrequested;
+				unrequested = 0;
+			}
+		}
+		if (n == -1)
+			subscription.cancel();
+		else if (n > 0)
+			subscription.request(n);
+	}
+
+	@Override
+	public void onNext(CharSequence item) {
+		if (done)
+			return;
+		StringBuilder sb = new StringBuilder(item.length() + 16);
+		try {
+			if (encoder != null)
+				encoder.encode(item, sb);
+			else
+				decoder.decode(item, sb);
+		} catch (IllegalArgumentException ex) {
+			fail(ex);
+			return;
+		}
+		if (sb.length() == 0) {
+			upstream().request(1);
+			return;
+		}
+		demand.decrementAndGet();
+		subscriber.onNext(sb.toString());
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		if (done)
+			return;
+		done = true;
+		subscriber.onError(throwable);
+	}
+
+	@Override
+	public void onComplete() {
+		if (done)
+			return;
+		StringBuilder sb = new StringBuilder();
+		try {
+			if (encoder != null)
+				encoder.finish(sb);
+			else
+				decoder.finish(sb);
+		} catch (IllegalArgumentException ex) {
+			fail(ex);
+			return;
+		}
+		if (sb.length() == 0) {
+			done = true;
+			subscriber.onComplete();
+			return;
+		}
+		tail.set(sb.toString());
+		done = true;
+		if (demand.get() > 0)
+			publishTail();
+	}
+
+	private void requestDownstream(long n) {
+		if (n <= 0) {
+			cancelUpstream();
+			if (!done) {
+				done = true;
+				subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+			}
+			return;
+		}
+		long current, next;
+		do {
+			current = demand.get();
+			next = current + n < 0 ? Long.MAX_VALUE : current + n;
+		} while (!demand.compareAndSet(current, next));
+		if (done) {
+			publishTail();
+			return;
+		}
+		Flow.Subscription subscription;
+		synchronized (this) {
+			subscription = upstream;
+			if (subscription == null) {
+				unrequested = unrequested + n < 0 ? Long.MAX_VALUE : unrequested + n;
+				return;
+			}
+		}
+		subscription.request(n);
+	}
+
+	private void publishTail() {
+		String value = tail.getAndSet(null);
+		if (value != null) {
+			subscriber.onNext(value);
+			subscriber.onComplete();
+		}
+	}
+
+	private void fail(IllegalArgumentException ex) {
+		done = true;
+		cancelUpstream();
+		subscriber.onError(ex);
+	}
+
+	private void cancelUpstream() {
+		Flow.Subscription subscription = upstream();
+		if (subscription != null)
+			subscription.cancel();
+	}
+
+	private synchronized Flow.Subscription upstream() {
+		return upstream;
+	}
+}
@@ -0,0 +1,102 @@
+package net.sf.mnemonifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class MnemonifierProcessorTest {
+
+	private Mnemonifier instance;
+
+	@Before
+	public void setUp() {
+		instance = new Mnemonifier();
+	}
+
+	@Test
+	public void testMnemonify() throws Exception {
+		CollectingSubscriber result = run(MnemonifierProcessor.mnemonifying(instance), "Für ", "[x] \ud834", "\udd1e", "€");
+		Assert.assertNull(result.error);
+		Assert.assertEquals("F[u:]r [[]x[]] [#1D11E][#20AC]", result.joined());
+	}
+
+	@Test
+	public void testUnmnemonify() throws Exception {
+		CollectingSubscriber result = run(MnemonifierProcessor.unmnemonifying(instance, true), "F[u:", "]r [", "[]x[]] [#1D", "11E{G", "-clef}][#2", "0AC]");
+		Assert.assertNull(result.error);
+		Assert.assertEquals("Für [x] 𝄞€", result.joined());
+		Assert.assertEquals(5, result.items.size());
+	}
+
+	@Test
+	public void testTail() throws Exception {
+		CollectingSubscriber result = run(MnemonifierProcessor.unmnemonifying(instance, false), "a", "[#20");
+		Assert.assertNull(result.error);
+		Assert.assertEquals("a[#20", result.joined());
+		Assert.assertEquals(2, result.items.size());
+	}
+
+	@Test
+	public void testStrictError() throws Exception {
+		CollectingSubscriber result = run(MnemonifierProcessor.unmnemonifying(instance, true), "a", "]", "b");
+		Assert.assertTrue(result.error instanceof IllegalArgumentException);
+		Assert.assertEquals("a", result.joined());
+	}
+
+	private CollectingSubscriber run(MnemonifierProcessor processor, String... chunks) throws InterruptedException {
+		CollectingSubscriber subscriber = new CollectingSubscriber();
+		processor.subscribe(subscriber);
+		SubmissionPublisher<CharSequence> publisher = new SubmissionPublisher<>();
+		publisher.subscribe(processor);
+		for (String chunk : chunks) {
+			publisher.submit(chunk);
+		}
+		publisher.close();
+		Assert.assertTrue(subscriber.finished.await(10, TimeUnit.SECONDS));
+		return subscriber;
+	}
+
+	private static class CollectingSubscriber implements Flow.Subscriber<String> {
+		private final List<String> items = new ArrayList<>();
+		private final CountDownLatch finished = new CountDownLatch(1);
+		private Flow.Subscription subscription;
+		private Throwable error;
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			subscription.request(1);
+		}
+
+		@Override
+		public void onNext(String item) {
+			items.add(item);
+			subscription.request(1);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+			finished.countDown();
+		}
+
+		@Override
+		public void onComplete() {
+			finished.countDown();
+		}
+
+		private String joined() {
+			StringBuilder sb = new StringBuilder();
+			for (String item : items) {
+				sb.append(item);
+			}
+			return sb.toString();
+		}
+	}
+}
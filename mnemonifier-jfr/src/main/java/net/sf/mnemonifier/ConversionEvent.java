@@ -0,0 +1,31 @@
+package net.sf.mnemonifier;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a large conversion, recorded by
+ * {@link MnemonifierMetrics} through {@link FlightRecorderConversionRecorder}.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+@Name("net.sf.mnemonifier.Conversion")
+@Label("Mnemonifier Conversion")
+@Category("Mnemonifier")
+@Description("Conversion of a large string or byte array")
+final class ConversionEvent extends Event {
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Input Length")
+	@Description("Input length in chars or bytes")
+	int inputLength;
+
+	@Label("Output Length")
+	@Description("Output length, or -1 if the input was invalid")
+	int outputLength;
+}
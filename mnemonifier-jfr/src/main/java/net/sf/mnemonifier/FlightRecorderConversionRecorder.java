@@ -0,0 +1,30 @@
+package net.sf.mnemonifier;
+
+/**
+ * Records large conversions as {@link ConversionEvent}s. Loaded by
+ * {@link MnemonifierMetrics} by reflection, so that the mnemonifier module
+ * does not depend on Flight Recorder.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+final class FlightRecorderConversionRecorder implements ConversionRecorder {
+
+	public Object start() {
+		ConversionEvent event = new ConversionEvent();
+		if (!event.isEnabled())
+			return null;
+		event.begin();
+		return event;
+	}
+
+	public void commit(Object recording, String operation, int inputLength, int outputLength) {
+		ConversionEvent event = (ConversionEvent) recording;
+		event.end();
+		if (event.shouldCommit()) {
+			event.operation = operation;
+			event.inputLength = inputLength;
+			event.outputLength = outputLength;
+			event.commit();
+		}
+	}
+}
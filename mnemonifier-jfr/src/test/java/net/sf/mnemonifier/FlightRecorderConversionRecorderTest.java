@@ -0,0 +1,46 @@
+package net.sf.mnemonifier;
+
+import java.io.File;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class FlightRecorderConversionRecorderTest {
+
+	private Mnemonifier instance;
+
+	@Before
+	public void setUp() {
+		instance = new Mnemonifier(MnemonicTable.getDefault(), false, new MnemonifierMetrics(100));
+	}
+
+	@Test
+	public void testFlightRecorder() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < 100)
+			sb.append("Größe ");
+		File file = File.createTempFile("mnemonifier", ".jfr");
+		try {
+			Recording recording = new Recording();
+			recording.enable("net.sf.mnemonifier.Conversion").withoutThreshold();
+			recording.start();
+			instance.mnemonify("small");
+			String encoded = instance.mnemonify(sb.toString());
+			recording.stop();
+			recording.dump(file.toPath());
+			recording.close();
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+			Assert.assertEquals(1, events.size());
+			Assert.assertEquals("mnemonify", events.get(0).getString("operation"));
+			Assert.assertEquals(sb.length(), events.get(0).getInt("inputLength"));
+			Assert.assertEquals(encoded.length(), events.get(0).getInt("outputLength"));
+		} finally {
+			file.delete();
+		}
+	}
+}
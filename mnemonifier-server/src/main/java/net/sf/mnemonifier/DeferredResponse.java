@@ -0,0 +1,99 @@
+package net.sf.mnemonifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Response body that delays sending the response headers until a threshold
+ * has been reached, the stream is flushed, or the stream is closed. Until
+ * then, the request may still be answered with an error status instead.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+class DeferredResponse extends OutputStream {
+
+	private final HttpExchange exchange;
+	private final int threshold;
+	private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+	private OutputStream body = null;
+	private long count = 0;
+
+	DeferredResponse(HttpExchange exchange, int threshold) {
+		this.exchange = exchange;
+		this.threshold = threshold;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		count += len;
+		if (body != null) {
+			body.write(b, off, len);
+			return;
+		}
+		buffer.write(b, off, len);
+		if (buffer.size() > threshold)
+			commit(0);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (body == null)
+			commit(0);
+		body.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		completing();
+		if (body == null)
+			commit(buffer.size() == 0 ? -1 : buffer.size());
+		body.close();
+	}
+
+	/**
+	 * Return whether the response headers have been sent.
+	 *
+	 * @return whether the response has been committed
+	 */
+	boolean isCommitted() {
+		return body != null;
+	}
+
+	/**
+	 * Return the number of bytes written so far.
+	 *
+	 * @return size of the response body
+	 */
+	long getCount() {
+		return count;
+	}
+
+	/**
+	 * Called when the stream is closed, before the rest of the response is
+	 * sent. The default implementation does nothing.
+	 */
+	protected void completing() {
+	}
+
+	/**
+	 * Send the response headers and the buffered part of the body.
+	 *
+	 * @param length
+	 *            length to send to {@link HttpExchange#sendResponseHeaders}
+	 */
+	private void commit(long length) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(200, length);
+		body = exchange.getResponseBody();
+		buffer.writeTo(body);
+		buffer = null;
+	}
+}
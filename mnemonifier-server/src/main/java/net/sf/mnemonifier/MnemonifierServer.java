@@ -0,0 +1,364 @@
+package net.sf.mnemonifier;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Small HTTP server that mnemonifies and unmnemonifies text, for programs
+ * that do not run on the JVM and would otherwise have to start a JVM (and
+ * load the mnemonic table) for every conversion. It only uses the HTTP
+ * server included in the JDK.
+ *
+ * <p>
+ * The following endpoints convert UTF-8 encoded {@code POST} request bodies:
+ * <dl>
+ * <dt>{@code /mnemonify}, {@code /unmnemonify}</dt>
+ * <dd>Convert the whole body. Bodies of any size are streamed through a
+ * {@link MnemonifyingEncoder} or {@link UnmnemonifyingDecoder}.</dd>
+ * <dt>{@code /mnemonify/lines}, {@code /unmnemonify/lines}</dt>
+ * <dd>Convert every line of the body on its own, and answer with one line per
+ * line. Results of lines that arrive together are flushed before waiting for
+ * more lines, so that clients can pipeline many small conversions over a
+ * single request; when mnemonifying, these lines are converted as a batch.
+ * A line that would unmnemonify to a line terminator (CR, LF, NEL, line
+ * separator or paragraph separator) is invalid input, as its result would be
+ * split into several lines.</dd>
+ * </dl>
+ * Add {@code ?strict=true} to use strict decoding rules. Invalid input is
+ * answered with status 400 if it is detected before the response has been
+ * flushed; otherwise the connection is closed without completing the
+ * response. {@code GET /stats} returns throughput and latency statistics, and
+ * the counters of the mnemonifier's {@link MnemonifierMetrics} if it has any.
+ *
+ * <p>
+ * Every request is handled on its own virtual thread if the Java runtime
+ * supports them (Java 21 or later), or on a cached thread pool otherwise.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class MnemonifierServer {
+
+	private static final int BUFFER_SIZE = 8192, BATCH_SIZE = 1024, COMMIT_THRESHOLD = 65536;
+
+	private final Mnemonifier mnemonifier;
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final boolean virtualThreads;
+	private final ServerStats stats = new ServerStats();
+
+	/**
+	 * Main method for the server.
+	 *
+	 * @param args
+	 *            Command line arguments, see usage message
+	 * @throws IOException
+	 *             if the address cannot be bound
+	 */
+	public static void main(String[] args) throws IOException {
+		String host = "127.0.0.1";
+		int port = 8765;
+		boolean compact = false;
+		boolean valid = true;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("-g")) {
+					compact = true;
+				} else if (args[i].equals("-b") && i + 1 < args.length) {
+					host = args[++i];
+				} else if (args[i].equals("-p") && i + 1 < args.length) {
+					port = Integer.parseInt(args[++i]);
+				} else {
+					valid = false;
+				}
+			}
+		} catch (NumberFormatException ex) {
+			valid = false;
+		}
+		if (!valid || port < 0 || port > 65535) {
+			System.err.println("Usage: java -jar mnemonifier-server.jar [-g] [-b <address>] [-p <port>]");
+			System.err.println();
+			System.err.println("Serve mnemonification over HTTP; see the documentation for the endpoints.");
+			System.err.println();
+			System.err.println("  -g  group runs of hex codes (compact output)");
+			System.err.println("  -b  address to bind to (default: 127.0.0.1)");
+			System.err.println("  -p  port to listen on (default: 8765)");
+			System.exit(2);
+		}
+		Mnemonifier mnemonifier = new Mnemonifier(MnemonicTable.getDefault(), compact, new MnemonifierMetrics());
+		MnemonifierServer server = new MnemonifierServer(mnemonifier, new InetSocketAddress(host, port));
+		server.start();
+		System.out.println("Listening on " + server.getAddress() + (server.isUsingVirtualThreads() ? " (using virtual threads)" : ""));
+	}
+
+	/**
+	 * Create a new server. The server is not started yet.
+	 *
+	 * @param mnemonifier
+	 *            mnemonifier to use for all conversions
+	 * @param address
+	 *            address to bind to; use port 0 for any free port
+	 * @throws IOException
+	 *             if the address cannot be bound
+	 */
+	public MnemonifierServer(Mnemonifier mnemonifier, InetSocketAddress address) throws IOException {
+		this.mnemonifier = mnemonifier;
+		server = HttpServer.create(address, 0);
+		ExecutorService virtualThreadExecutor = createVirtualThreadExecutor();
+		virtualThreads = virtualThreadExecutor != null;
+		executor = virtualThreads ? virtualThreadExecutor : Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		server.createContext("/mnemonify", new ConversionHandler("/mnemonify", false, false));
+		server.createContext("/unmnemonify", new ConversionHandler("/unmnemonify", true, false));
+		server.createContext("/mnemonify/lines", new ConversionHandler("/mnemonify/lines", false, true));
+		server.createContext("/unmnemonify/lines", new ConversionHandler("/unmnemonify/lines", true, true));
+		server.createContext("/stats", new StatsHandler());
+	}
+
+	/**
+	 * Start accepting requests.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stop accepting requests, and close all connections.
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdown();
+	}
+
+	/**
+	 * Return the address the server is bound to.
+	 *
+	 * @return the address, including the actual port
+	 */
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	/**
+	 * Return whether requests are handled on virtual threads.
+	 *
+	 * @return whether virtual threads are used
+	 */
+	public boolean isUsingVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Return the statistics of this server.
+	 *
+	 * @return the statistics
+	 */
+	public ServerStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Create an executor that starts a new virtual thread for every task.
+	 * Reflection is used so that the server also runs on older Java versions.
+	 *
+	 * @return the executor, or {@code null} if virtual threads are not
+	 *         supported
+	 */
+	private static ExecutorService createVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (Exception ex) {
+			return null;
+		}
+	}
+
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		byte[] body = (message + "\n").getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(status, body.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(body);
+		out.close();
+	}
+
+	private class ConversionHandler implements HttpHandler {
+
+		private final String path;
+		private final boolean decode, lines;
+
+		private ConversionHandler(String path, boolean decode, boolean lines) {
+			this.path = path;
+			this.decode = decode;
+			this.lines = lines;
+		}
+
+		public void handle(HttpExchange exchange) throws IOException {
+			if (!exchange.getRequestURI().getPath().equals(path)) {
+				sendError(exchange, 404, "Not found");
+				return;
+			}
+			if (!exchange.getRequestMethod().equals("POST")) {
+				sendError(exchange, 405, "Method not allowed");
+				return;
+			}
+			final long startTime = System.nanoTime();
+			String query = exchange.getRequestURI().getQuery();
+			boolean strict = query != null && ("&" + query + "&").contains("&strict=true&");
+			final CountingInputStream requestBody = new CountingInputStream(exchange.getRequestBody());
+			Reader in = new InputStreamReader(requestBody, "UTF-8");
+			DeferredResponse response = new DeferredResponse(exchange, COMMIT_THRESHOLD) {
+				@Override
+				protected void completing() {
+					// record before the client can see the end of the response
+					stats.record(requestBody.count, getCount(), System.nanoTime() - startTime, false);
+				}
+			};
+			Writer out = new OutputStreamWriter(response, "UTF-8");
+			try {
+				if (lines)
+					convertLines(in, out, strict);
+				else
+					convert(in, out, strict);
+			} catch (IllegalArgumentException ex) {
+				stats.record(requestBody.count, response.getCount(), System.nanoTime() - startTime, true);
+				if (!response.isCommitted()) {
+					sendError(exchange, 400, ex.getMessage());
+					return;
+				}
+				// closes the connection, so that the client sees an incomplete response
+				throw new IOException("Invalid input after response has been flushed", ex);
+			}
+			out.close();
+		}
+
+		private void convert(Reader in, Writer out, boolean strict) throws IOException {
+			MnemonifyingEncoder encoder = decode ? null : new MnemonifyingEncoder(mnemonifier);
+			UnmnemonifyingDecoder decoder = decode ? new UnmnemonifyingDecoder(mnemonifier, strict) : null;
+			char[] buffer = new char[BUFFER_SIZE];
+			StringBuilder sb = new StringBuilder(BUFFER_SIZE * 2);
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				sb.setLength(0);
+				CharBuffer chunk = CharBuffer.wrap(buffer, 0, count);
+				if (decode)
+					decoder.decode(chunk, sb);
+				else
+					encoder.encode(chunk, sb);
+				out.append(sb);
+			}
+			sb.setLength(0);
+			if (decode)
+				decoder.finish(sb);
+			else
+				encoder.finish(sb);
+			out.append(sb);
+		}
+
+		private void convertLines(Reader in, Writer out, boolean strict) throws IOException {
+			BufferedReader reader = new BufferedReader(in, BUFFER_SIZE);
+			List<String> batch = new ArrayList<String>();
+			long lineNumber = 1;
+			while (true) {
+				String line = reader.readLine();
+				if (line != null)
+					batch.add(line);
+				if (line == null || batch.size() == BATCH_SIZE || !reader.ready()) {
+					if (!batch.isEmpty()) {
+						writeBatch(batch, lineNumber, out, strict);
+						lineNumber += batch.size();
+						batch.clear();
+					}
+					// send results before blocking for more lines
+					if (line != null)
+						out.flush();
+				}
+				if (line == null)
+					break;
+			}
+		}
+
+		private void writeBatch(List<String> batch, long firstLineNumber, Writer out, boolean strict) throws IOException {
+			if (decode) {
+				for (int i = 0; i < batch.size(); i++) {
+					String result = mnemonifier.unmnemonify(batch.get(i), strict);
+					for (int j = 0; j < result.length(); j++) {
+						char c = result.charAt(j);
+						if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029')
+							throw new IllegalArgumentException("Line " + (firstLineNumber + i) + " contains a line terminator");
+					}
+					out.write(result);
+					out.write('\n');
+				}
+				return;
+			}
+			MnemonifiedBatch results = mnemonifier.mnemonifyBatch(batch);
+			char[] data = results.getData();
+			int[] offsets = results.getOffsets();
+			for (int i = 0; i < results.size(); i++) {
+				out.write(data, offsets[i], offsets[i + 1] - offsets[i]);
+				out.write('\n');
+			}
+		}
+	}
+
+	private class StatsHandler implements HttpHandler {
+
+		public void handle(HttpExchange exchange) throws IOException {
+			if (!exchange.getRequestURI().getPath().equals("/stats")) {
+				sendError(exchange, 404, "Not found");
+				return;
+			}
+			StringBuilder sb = new StringBuilder(stats.toString());
+			sb.append("virtualThreads ").append(virtualThreads).append('\n');
+			if (mnemonifier.getMetrics() != null)
+				sb.append("metrics ").append(mnemonifier.getMetrics()).append('\n');
+			byte[] body = sb.toString().getBytes("UTF-8");
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+			exchange.sendResponseHeaders(200, body.length);
+			OutputStream out = exchange.getResponseBody();
+			out.write(body);
+			out.close();
+		}
+	}
+
+	private static class CountingInputStream extends FilterInputStream {
+
+		private long count = 0;
+
+		private CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int result = super.read();
+			if (result != -1)
+				count++;
+			return result;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int result = super.read(b, off, len);
+			if (result != -1)
+				count += result;
+			return result;
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package net.sf.mnemonifier;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput and latency statistics of a {@link MnemonifierServer}.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public final class ServerStats {
+
+	/**
+	 * Lower bounds of the buckets of the latency histogram, in milliseconds.
+	 * The last bucket is unbounded.
+	 */
+	public static final int[] LATENCY_BUCKETS = { 0, 1, 10, 100, 1000 };
+
+	private final long startTime = System.nanoTime();
+	private final LongAdder requestCount = new LongAdder(), failedRequestCount = new LongAdder();
+	private final LongAdder inputBytes = new LongAdder(), outputBytes = new LongAdder();
+	private final LongAdder totalLatency = new LongAdder();
+	private final AtomicLong maxLatency = new AtomicLong();
+	private final LongAdder[] latencyHistogram = new LongAdder[LATENCY_BUCKETS.length];
+
+	ServerStats() {
+		for (int i = 0; i < latencyHistogram.length; i++) {
+			latencyHistogram[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Return the number of conversion requests, including failed ones.
+	 *
+	 * @return number of requests
+	 */
+	public long getRequestCount() {
+		return requestCount.sum();
+	}
+
+	/**
+	 * Return the number of conversion requests that failed because of invalid
+	 * input.
+	 *
+	 * @return number of failed requests
+	 */
+	public long getFailedRequestCount() {
+		return failedRequestCount.sum();
+	}
+
+	/**
+	 * Return the total size of all request bodies.
+	 *
+	 * @return number of bytes received
+	 */
+	public long getInputBytes() {
+		return inputBytes.sum();
+	}
+
+	/**
+	 * Return the total size of all response bodies.
+	 *
+	 * @return number of bytes sent
+	 */
+	public long getOutputBytes() {
+		return outputBytes.sum();
+	}
+
+	/**
+	 * Return the average number of request body bytes converted per second
+	 * since the server has been created.
+	 *
+	 * @return throughput in bytes per second
+	 */
+	public long getThroughput() {
+		long elapsed = System.nanoTime() - startTime;
+		return elapsed <= 0 ? 0 : (long) (getInputBytes() * 1e9 / elapsed);
+	}
+
+	/**
+	 * Return the average time needed for a request.
+	 *
+	 * @return average latency in nanoseconds
+	 */
+	public long getAverageLatency() {
+		long count = getRequestCount();
+		return count == 0 ? 0 : totalLatency.sum() / count;
+	}
+
+	/**
+	 * Return the longest time needed for a request.
+	 *
+	 * @return maximum latency in nanoseconds
+	 */
+	public long getMaxLatency() {
+		return maxLatency.get();
+	}
+
+	/**
+	 * Return the latency histogram.
+	 *
+	 * @return number of requests per bucket of {@link #LATENCY_BUCKETS}
+	 */
+	public long[] getLatencyHistogram() {
+		long[] result = new long[latencyHistogram.length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = latencyHistogram[i].sum();
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("requests ").append(getRequestCount()).append('\n');
+		sb.append("failedRequests ").append(getFailedRequestCount()).append('\n');
+		sb.append("inputBytes ").append(getInputBytes()).append('\n');
+		sb.append("outputBytes ").append(getOutputBytes()).append('\n');
+		sb.append("throughputBytesPerSecond ").append(getThroughput()).append('\n');
+		sb.append("averageLatencyMicros ").append(getAverageLatency() / 1000).append('\n');
+		sb.append("maxLatencyMicros ").append(getMaxLatency() / 1000).append('\n');
+		long[] histogram = getLatencyHistogram();
+		for (int i = 0; i < histogram.length; i++) {
+			sb.append("latencyAtLeast").append(LATENCY_BUCKETS[i]).append("ms ").append(histogram[i]).append('\n');
+		}
+		return sb.toString();
+	}
+
+	void record(long requestBytes, long responseBytes, long latency, boolean failed) {
+		requestCount.increment();
+		if (failed)
+			failedRequestCount.increment();
+		inputBytes.add(requestBytes);
+		outputBytes.add(responseBytes);
+		totalLatency.add(latency);
+		long max;
+		do {
+			max = maxLatency.get();
+		} while (latency > max && !maxLatency.compareAndSet(max, latency));
+		long millis = latency / 1000000;
+		int bucket = LATENCY_BUCKETS.length - 1;
+		while (bucket > 0 && millis < LATENCY_BUCKETS[bucket])
+			bucket--;
+		latencyHistogram[bucket].increment();
+	}
+}
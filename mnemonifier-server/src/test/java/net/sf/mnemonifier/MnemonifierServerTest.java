@@ -0,0 +1,142 @@
+package net.sf.mnemonifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class MnemonifierServerTest {
+
+	private Mnemonifier instance;
+	private MnemonifierServer server;
+
+	@Before
+	public void setUp() throws IOException {
+		instance = new Mnemonifier();
+		server = new MnemonifierServer(instance, new InetSocketAddress("127.0.0.1", 0));
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	public void testConvert() throws IOException {
+		Assert.assertEquals(instance.mnemonify("Größe €\n[x]"), post("/mnemonify", "Größe €\n[x]"));
+		Assert.assertEquals("Größe €\n[x]", post("/unmnemonify?strict=true", "Gr[o:][ss]e [#20AC]\n[[]x[]]"));
+		Assert.assertEquals("[x]", post("/unmnemonify", "[x]"));
+		Assert.assertEquals("", post("/mnemonify", ""));
+		Assert.assertEquals(4, server.getStats().getRequestCount());
+		Assert.assertEquals(0, server.getStats().getFailedRequestCount());
+	}
+
+	@Test
+	public void testInvalid() throws IOException {
+		HttpURLConnection connection = open("/unmnemonify?strict=true", "ok [x]");
+		Assert.assertEquals(400, connection.getResponseCode());
+		Assert.assertEquals(1, server.getStats().getFailedRequestCount());
+		Assert.assertEquals(404, open("/mnemonify/other", "x").getResponseCode());
+	}
+
+	@Test
+	public void testLarge() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			sb.append("Größe [€] 中文 𝄞\n");
+		}
+		String original = sb.toString();
+		String encoded = post("/mnemonify", original);
+		Assert.assertEquals(instance.mnemonify(original), encoded);
+		Assert.assertEquals(original, post("/unmnemonify?strict=true", encoded));
+		Assert.assertEquals(original.getBytes("UTF-8").length + encoded.length(), server.getStats().getInputBytes());
+	}
+
+	@Test
+	public void testLines() throws IOException {
+		Assert.assertEquals(instance.mnemonify("ä\n\nx[\n"), post("/mnemonify/lines", "ä\n\r\nx[\n"));
+		Assert.assertEquals("ä\n\nx[\n", post("/unmnemonify/lines?strict=true", "[a:]\n\r\nx[[]"));
+		for (String terminator : new String[] { "[#A]", "[#D]", "[#85]", "[#2028]", "[#2029]" }) {
+			Assert.assertEquals(400, open("/unmnemonify/lines", "ok\nx" + terminator + "y\n").getResponseCode());
+		}
+		Assert.assertEquals(5, server.getStats().getFailedRequestCount());
+	}
+
+	@Test
+	public void testPipelining() throws IOException {
+		Socket socket = new Socket("127.0.0.1", server.getAddress().getPort());
+		try {
+			OutputStream out = socket.getOutputStream();
+			InputStream in = socket.getInputStream();
+			out.write("POST /mnemonify/lines HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n".getBytes("UTF-8"));
+			for (String line : new String[] { "ä\n", "€\n" }) {
+				byte[] chunk = line.getBytes("UTF-8");
+				out.write((Integer.toHexString(chunk.length) + "\r\n").getBytes("UTF-8"));
+				out.write(chunk);
+				out.write("\r\n".getBytes("UTF-8"));
+				out.flush();
+				// the result arrives before the request is complete
+				String expected = instance.mnemonify(line.substring(0, 1)) + "\n";
+				ByteArrayOutputStream response = new ByteArrayOutputStream();
+				while (!response.toString("UTF-8").contains(expected)) {
+					int b = in.read();
+					Assert.assertTrue(b != -1);
+					response.write(b);
+				}
+			}
+			out.write("0\r\n\r\n".getBytes("UTF-8"));
+		} finally {
+			socket.close();
+		}
+	}
+
+	@Test
+	public void testStats() throws IOException {
+		post("/mnemonify", "€");
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/stats").openConnection();
+		String stats = read(connection.getInputStream());
+		Assert.assertTrue(stats.contains("requests 1\n"));
+		Assert.assertTrue(stats.contains("virtualThreads " + server.isUsingVirtualThreads() + "\n"));
+		long total = 0;
+		for (long count : server.getStats().getLatencyHistogram()) {
+			total += count;
+		}
+		Assert.assertEquals(1, total);
+	}
+
+	private HttpURLConnection open(String path, String body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getAddress().getPort() + path).openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setChunkedStreamingMode(4096);
+		OutputStream out = connection.getOutputStream();
+		out.write(body.getBytes("UTF-8"));
+		out.close();
+		return connection;
+	}
+
+	private String post(String path, String body) throws IOException {
+		HttpURLConnection connection = open(path, body);
+		Assert.assertEquals(200, connection.getResponseCode());
+		return read(connection.getInputStream());
+	}
+
+	private static String read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int count;
+		while ((count = in.read(buffer)) != -1) {
+			out.write(buffer, 0, count);
+		}
+		in.close();
+		return out.toString("UTF-8");
+	}
+}
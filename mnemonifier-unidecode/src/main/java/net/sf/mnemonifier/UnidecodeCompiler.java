@@ -0,0 +1,63 @@
+package net.sf.mnemonifier;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Utility class to precompute the codepoint information of all codepoints
+ * into the binary unidecode.bin file, which is used by the build to avoid
+ * calling Unidecode at runtime.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class UnidecodeCompiler {
+
+	static final int MAGIC = 0x4D4E5501;
+
+	/**
+	 * Main method for Unidecode compiler.
+	 *
+	 * @param args
+	 *            Command line arguments: output file name
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: java net.sf.mnemonifier.UnidecodeCompiler <unidecode.bin>");
+			return;
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(args[0])));
+		out.writeInt(MAGIC);
+		UnidecodeTable.write(out);
+		out.close();
+	}
+
+	/**
+	 * Read a compiled Unidecode file completely.
+	 *
+	 * @param inputStream
+	 *            Input stream to read from
+	 * @return buffer positioned after the magic number
+	 * @throws IOException
+	 *             if an I/O error occurs or the file is invalid
+	 */
+	static ByteBuffer read(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[16384];
+		int len;
+		while ((len = inputStream.read(buffer)) != -1) {
+			baos.write(buffer, 0, len);
+		}
+		inputStream.close();
+		ByteBuffer in = ByteBuffer.wrap(baos.toByteArray());
+		if (in.remaining() < 6 || in.getInt() != MAGIC)
+			throw new IOException("Invalid compiled Unidecode file");
+		return in;
+	}
+}
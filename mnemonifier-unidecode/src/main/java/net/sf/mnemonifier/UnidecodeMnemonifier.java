@@ -1,6 +1,8 @@
 package net.sf.mnemonifier;
 
-import me.xuender.unidecode.Unidecode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Mnemonifier implementation that uses <a
@@ -8,15 +10,105 @@ import me.xuender.unidecode.Unidecode;
  * codepoint info for codepoints that are not covered by RFC1345 or by
  * decomposition mapping.
  *
+ * <p>
+ * The codepoint info is precomputed at build time and cached per page of 256
+ * codepoints on first use, shared by all instances.
+ *
  * @author Michael Schierl {@code <schierlm@gmx.de>}
  */
 public class UnidecodeMnemonifier extends Mnemonifier {
+
+	private static final String[] EMPTY_PAGE = new String[256];
+	private static final AtomicReferenceArray<String[]> infoPages = new AtomicReferenceArray<String[]>(UnidecodeTable.PAGE_COUNT);
+	private static volatile UnidecodeTable table = null;
+
+	/**
+	 * Class constructor that uses the {@linkplain MnemonicTable#getDefault()
+	 * default mnemonic table}.
+	 */
+	public UnidecodeMnemonifier() {
+	}
+
+	/**
+	 * Create a mnemonifier that uses a custom mnemonic table.
+	 *
+	 * @param table
+	 *            mnemonic table to use for encoding and decoding
+	 */
+	public UnidecodeMnemonifier(MnemonicTable table) {
+		super(table);
+	}
+
+	/**
+	 * Create a mnemonifier that uses a custom mnemonic table and optionally
+	 * compact output.
+	 *
+	 * @param table
+	 *            mnemonic table to use for encoding and decoding
+	 * @param compact
+	 *            whether to use compact output
+	 * @see Mnemonifier#Mnemonifier(MnemonicTable, boolean)
+	 */
+	public UnidecodeMnemonifier(MnemonicTable table, boolean compact) {
+		super(table, compact);
+	}
+
+	/**
+	 * Create a mnemonifier that uses a custom mnemonic table, optionally
+	 * compact output, and optionally records metrics.
+	 *
+	 * @param table
+	 *            mnemonic table to use for encoding and decoding
+	 * @param compact
+	 *            whether to use compact output
+	 * @param metrics
+	 *            metrics to record, or {@code null}
+	 * @see Mnemonifier#Mnemonifier(MnemonicTable, boolean, MnemonifierMetrics)
+	 */
+	public UnidecodeMnemonifier(MnemonicTable table, boolean compact, MnemonifierMetrics metrics) {
+		super(table, compact, metrics);
+	}
+
 	protected String getCodepointInfo(int codepoint) {
-		if (codepoint > 0xFFFF)
-			return null;
-		String info = Unidecode.decode("" + (char) codepoint);
-		if (info.contains("[?]") || info.contains("{") || info.contains("}"))
-			info = null;
-		return info;
+		String[] infos = infoPages.get(codepoint >> 8);
+		if (infos == null) {
+			infos = table().page(codepoint >> 8);
+			if (infos == null)
+				infos = EMPTY_PAGE;
+			infoPages.set(codepoint >> 8, infos);
+		}
+		return infos[codepoint & 0xFF];
+	}
+
+	@Override
+	protected int getMaxCodepointInfoLength() {
+		return table().getMaxInfoLength();
+	}
+
+	private static UnidecodeTable table() {
+		UnidecodeTable result = table;
+		if (result == null) {
+			synchronized (UnidecodeMnemonifier.class) {
+				if (table == null)
+					table = loadTable();
+				result = table;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Load the compiled Unidecode file, or create a table that calls
+	 * Unidecode if there is no compiled file.
+	 */
+	private static UnidecodeTable loadTable() {
+		InputStream in = UnidecodeMnemonifier.class.getResourceAsStream("unidecode.bin");
+		if (in == null)
+			return new UnidecodeTable();
+		try {
+			return new UnidecodeTable(UnidecodeCompiler.read(in));
+		} catch (IOException ex) {
+			throw new IllegalStateException("Unable to load Unidecode table", ex);
+		}
 	}
 }
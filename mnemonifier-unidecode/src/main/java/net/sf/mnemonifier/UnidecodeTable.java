@@ -0,0 +1,187 @@
+package net.sf.mnemonifier;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.Normalizer;
+
+import me.xuender.unidecode.Unidecode;
+
+/**
+ * Table of codepoint information provided by Unidecode, used to avoid calling
+ * Unidecode for every occurrence of a character.
+ *
+ * <p>
+ * Unidecode only covers the Basic Multilingual Plane. Supplementary
+ * codepoints are covered by applying Unidecode to their compatibility
+ * decomposition (for example, mathematical alphanumeric symbols are
+ * decomposed to plain letters).
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+final class UnidecodeTable {
+
+	/** Number of pages of 256 codepoints each. */
+	static final int PAGE_COUNT = (Character.MAX_CODE_POINT + 1) / 256;
+
+	/** Maximum length of an information string. */
+	static final int MAX_INFO_LENGTH = 254;
+
+	private final ByteBuffer data;
+	private final int[] lengthOffsets, infoOffsets;
+	private final int maxInfoLength;
+
+	/**
+	 * Create a table that computes its pages by calling Unidecode.
+	 */
+	UnidecodeTable() {
+		data = null;
+		lengthOffsets = infoOffsets = null;
+		maxInfoLength = MAX_INFO_LENGTH;
+	}
+
+	/**
+	 * Read a table in binary form. Only the page index is read; the pages
+	 * themselves are read when requested.
+	 *
+	 * @param in
+	 *            buffer to read from
+	 * @see #write(DataOutputStream)
+	 */
+	UnidecodeTable(ByteBuffer in) {
+		lengthOffsets = new int[PAGE_COUNT];
+		infoOffsets = new int[PAGE_COUNT];
+		int pageCount = in.getShort() & 0xFFFF;
+		int infoOffset = in.position() + pageCount * (2 + 256), maxLength = 0;
+		for (int i = 0; i < pageCount; i++) {
+			int page = in.getShort() & 0xFFFF;
+			lengthOffsets[page] = in.position();
+			infoOffsets[page] = infoOffset;
+			for (int j = 0; j < 256; j++) {
+				int length = in.get() & 0xFF;
+				if (length > 0)
+					infoOffset += length - 1;
+				maxLength = Math.max(maxLength, length - 1);
+			}
+		}
+		data = in;
+		maxInfoLength = maxLength;
+	}
+
+	/**
+	 * Write the complete table in binary form, computing all pages. For each
+	 * page that contains any information, the page number and the lengths of
+	 * all information strings (plus one, or zero for no information) are
+	 * written, followed by all information strings as ASCII bytes.
+	 *
+	 * @param out
+	 *            stream to write to
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	static void write(DataOutputStream out) throws IOException {
+		String[][] pages = new String[PAGE_COUNT][];
+		int pageCount = 0;
+		for (int page = 0; page < PAGE_COUNT; page++) {
+			pages[page] = computePage(page);
+			if (pages[page] != null)
+				pageCount++;
+		}
+		out.writeShort(pageCount);
+		for (int page = 0; page < PAGE_COUNT; page++) {
+			if (pages[page] == null)
+				continue;
+			out.writeShort(page);
+			for (int i = 0; i < 256; i++) {
+				String info = pages[page][i];
+				if (info != null && info.length() > MAX_INFO_LENGTH)
+					throw new IllegalStateException("Codepoint info too long");
+				out.writeByte(info == null ? 0 : info.length() + 1);
+			}
+		}
+		for (int page = 0; page < PAGE_COUNT; page++) {
+			if (pages[page] == null)
+				continue;
+			for (int i = 0; i < 256; i++) {
+				String info = pages[page][i];
+				if (info == null)
+					continue;
+				for (int j = 0; j < info.length(); j++) {
+					if (info.charAt(j) >= 128)
+						throw new IllegalStateException("Codepoint info not ASCII");
+					out.writeByte(info.charAt(j));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the length of the longest information string. If the pages are
+	 * computed by calling Unidecode, this is only an upper bound.
+	 *
+	 * @return maximum length of an information string
+	 */
+	int getMaxInfoLength() {
+		return maxInfoLength;
+	}
+
+	/**
+	 * Return the information of all codepoints of a page.
+	 *
+	 * @param page
+	 *            page number
+	 * @return array of 256 information strings, or {@code null} if no
+	 *         codepoint of this page has any information
+	 */
+	String[] page(int page) {
+		if (data == null)
+			return computePage(page);
+		int lengthOffset = lengthOffsets[page], infoOffset = infoOffsets[page];
+		if (lengthOffset == 0)
+			return null;
+		String[] result = new String[256];
+		char[] chars = new char[MAX_INFO_LENGTH];
+		for (int i = 0; i < 256; i++) {
+			int length = (data.get(lengthOffset + i) & 0xFF) - 1;
+			if (length == -1)
+				continue;
+			for (int j = 0; j < length; j++) {
+				chars[j] = (char) data.get(infoOffset + j);
+			}
+			result[i] = new String(chars, 0, length);
+			infoOffset += length;
+		}
+		return result;
+	}
+
+	private static String[] computePage(int page) {
+		String[] result = null;
+		for (int i = 0; i < 256; i++) {
+			String info = computeInfo(page * 256 + i);
+			if (info != null) {
+				if (result == null)
+					result = new String[256];
+				result[i] = info;
+			}
+		}
+		return result;
+	}
+
+	private static String computeInfo(int codepoint) {
+		String info;
+		if (codepoint <= 0xFFFF) {
+			info = Unidecode.decode("" + (char) codepoint);
+		} else {
+			String original = new String(Character.toChars(codepoint));
+			String decomposed = Normalizer.normalize(original, Normalizer.Form.NFKD);
+			if (decomposed.equals(original) || decomposed.length() != decomposed.codePointCount(0, decomposed.length()))
+				return null;
+			info = Unidecode.decode(decomposed);
+			if (info.trim().length() == 0)
+				return null;
+		}
+		if (info.contains("[?]") || info.contains("{") || info.contains("}"))
+			info = null;
+		return info;
+	}
+}
@@ -20,6 +20,33 @@ public class UnidecodeMnemonifierTest {
 		testSingle("\u20ac\u20B9", "[#20AC{EU}][#20B9]");
 		testSingle("\u20ac\ud834\udd1e\u20b9", "[#20AC{EU}][#1D11E][#20B9]");
 		testSingle("\u0301\u0400", "[|'][E=|!]");
+		testSingle("\ud835\udc00\ud835\udfce\ud869\udeb6", "[#1D400{A}][#1D7CE{0}][#2A6B6]");
+	}
+
+	@Test
+	public void testCharset() throws Exception {
+		MnemonifiedCharset charset = new MnemonifiedCharset(instance, false);
+		Assert.assertEquals("[#722B{Tsumekanmuri}]", new String("\u722b".getBytes(charset), "ISO-8859-1"));
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i <= Character.MAX_CODE_POINT; i += 13) {
+			if (Character.isDefined(i))
+				sb.appendCodePoint(i);
+		}
+		String input = sb.toString();
+		Assert.assertEquals(instance.mnemonify(input), new String(input.getBytes(charset), "ISO-8859-1"));
+		for (int i = 0; i < input.length(); i++) {
+			String single = input.substring(i, i + 1);
+			Assert.assertEquals(instance.mnemonify(single), new String(single.getBytes(charset), "ISO-8859-1"));
+		}
+	}
+
+	@Test
+	public void testCompiledTable() throws Exception {
+		UnidecodeTable computed = new UnidecodeTable();
+		UnidecodeTable compiled = new UnidecodeTable(UnidecodeCompiler.read(UnidecodeMnemonifier.class.getResourceAsStream("unidecode.bin")));
+		for (int page = 0; page < UnidecodeTable.PAGE_COUNT; page++) {
+			Assert.assertArrayEquals(computed.page(page), compiled.page(page));
+		}
 	}
 
 	@Test
@@ -0,0 +1,141 @@
+package net.sf.mnemonifier;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Helper methods to find the next character that needs to be converted, so
+ * that runs of characters that do not need any conversion can be copied in
+ * bulk.
+ *
+ * <p>
+ * Byte buffers are scanned eight bytes at a time, by testing all bytes of a
+ * {@code long} word in parallel (SWAR). Words that contain a candidate are
+ * then scanned byte by byte to find its exact position. Character sequences
+ * are scanned one character at a time: packing four chars into a word (after
+ * copying them into a scratch array) was not faster than the plain loop the
+ * JIT compiler generates for {@link String#charAt(int)} on current JVMs.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+final class AsciiScanner {
+
+	private static final long ONES = 0x0101010101010101L;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+	private static final long OPENING_BRACKETS = ONES * '[';
+	private static final long CLOSING_BRACKETS = ONES * ']';
+
+	private AsciiScanner() {
+	}
+
+	/**
+	 * Find the next character that is not ASCII or a square bracket.
+	 *
+	 * @param input
+	 *            characters to scan
+	 * @param start
+	 *            offset to start scanning at
+	 * @param end
+	 *            offset to stop scanning at
+	 * @return offset of the first such character, or {@code end}
+	 */
+	static int skipPlain(CharSequence input, int start, int end) {
+		for (int i = start; i < end; i++) {
+			char c = input.charAt(i);
+			if (c >= 128 || c == '[' || c == ']')
+				return i;
+		}
+		return end;
+	}
+
+	/**
+	 * Find the next byte that is not ASCII or a square bracket.
+	 *
+	 * @param input
+	 *            buffer to scan
+	 * @param start
+	 *            absolute offset to start scanning at
+	 * @param end
+	 *            absolute offset to stop scanning at
+	 * @return absolute offset of the first such byte, or {@code end}
+	 */
+	static int skipPlain(ByteBuffer input, int start, int end) {
+		int i = start;
+		while (i + 8 <= end) {
+			long word = input.getLong(i);
+			if ((word & HIGH_BITS) != 0 || hasZeroByte(word ^ OPENING_BRACKETS) || hasZeroByte(word ^ CLOSING_BRACKETS))
+				break;
+			i += 8;
+		}
+		for (; i < end; i++) {
+			byte b = input.get(i);
+			if (b < 0 || b == '[' || b == ']')
+				return i;
+		}
+		return end;
+	}
+
+	/**
+	 * Find the next opening square bracket, or the next square bracket of any
+	 * kind.
+	 *
+	 * @param input
+	 *            characters to scan
+	 * @param start
+	 *            offset to start scanning at
+	 * @param end
+	 *            offset to stop scanning at
+	 * @param closing
+	 *            whether to find closing square brackets too
+	 * @return offset of the first such character, or {@code end}
+	 */
+	static int findBracket(CharSequence input, int start, int end, boolean closing) {
+		if (!closing && end == input.length() && input instanceof String) {
+			int result = ((String) input).indexOf('[', start);
+			return result == -1 ? end : result;
+		}
+		for (int i = start; i < end; i++) {
+			char c = input.charAt(i);
+			if (c == '[' || (closing && c == ']'))
+				return i;
+		}
+		return end;
+	}
+
+	/**
+	 * Find the next opening square bracket, or the next square bracket of any
+	 * kind.
+	 *
+	 * @param input
+	 *            buffer to scan
+	 * @param start
+	 *            absolute offset to start scanning at
+	 * @param end
+	 *            absolute offset to stop scanning at
+	 * @param closing
+	 *            whether to find closing square brackets too
+	 * @return absolute offset of the first such byte, or {@code end}
+	 */
+	static int findBracket(ByteBuffer input, int start, int end, boolean closing) {
+		int i = start;
+		while (i + 8 <= end) {
+			long word = input.getLong(i);
+			if (hasZeroByte(word ^ OPENING_BRACKETS) || (closing && hasZeroByte(word ^ CLOSING_BRACKETS)))
+				break;
+			i += 8;
+		}
+		for (; i < end; i++) {
+			byte b = input.get(i);
+			if (b == '[' || (closing && b == ']'))
+				return i;
+		}
+		return end;
+	}
+
+	/**
+	 * Test whether any byte of a word is zero. The test is exact, but the
+	 * result does not tell which byte is zero.
+	 */
+	private static boolean hasZeroByte(long word) {
+		return ((word - ONES) & ~word & HIGH_BITS) != 0;
+	}
+}
@@ -0,0 +1,40 @@
+package net.sf.mnemonifier;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Character sequence view of a byte buffer, where every byte is interpreted
+ * as an ISO-8859-1 character. Indices are absolute buffer indices, so that the
+ * decoder can work on mnemonified bytes without copying them.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+final class ByteSequence implements CharSequence {
+
+	private final ByteBuffer buffer;
+
+	ByteSequence(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	public char charAt(int index) {
+		return (char) (buffer.get(index) & 0xFF);
+	}
+
+	public int length() {
+		return buffer.limit();
+	}
+
+	public CharSequence subSequence(int start, int end) {
+		char[] chars = new char[end - start];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = charAt(start + i);
+		}
+		return new String(chars);
+	}
+
+	@Override
+	public String toString() {
+		return subSequence(0, length()).toString();
+	}
+}
@@ -0,0 +1,254 @@
+package net.sf.mnemonifier;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mnemonifier that caches the results of {@link #mnemonify(String)} and
+ * {@link #unmnemonify(String, boolean)} for inputs that are converted over
+ * and over, like names.
+ *
+ * <p>
+ * Only inputs that actually need conversion are cached; plain ASCII inputs
+ * are passed to the decorated mnemonifier without touching the cache. For
+ * each direction (encoding, and lax and strict decoding together), the cache
+ * is bounded by the total number of characters of all cached inputs and
+ * results. It is split into segments that are locked independently, so that
+ * it scales when used by many threads, but share the weight budget of their
+ * direction. When the budget is exceeded, the least recently used entries of
+ * the segments are evicted in turn, which approximates evicting the least
+ * recently used entries of the whole cache. Entries heavier than the budget
+ * and invalid inputs are not cached.
+ *
+ * <p>
+ * All other methods behave like the ones of the decorated mnemonifier, which
+ * also provides the codepoint information.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class CachingMnemonifier extends Mnemonifier {
+
+	private static final int SEGMENT_COUNT = 16;
+
+	private final Mnemonifier delegate;
+	private final int maxWeight;
+	private final Direction encodeCache, decodeCache;
+
+	/**
+	 * Create a new caching mnemonifier.
+	 *
+	 * @param delegate
+	 *            mnemonifier to decorate
+	 * @param maxWeight
+	 *            maximum total number of characters of cached inputs and
+	 *            results, for encoding and for decoding (both lax and strict)
+	 *            each
+	 */
+	public CachingMnemonifier(Mnemonifier delegate, int maxWeight) {
+		super(delegate.getTable(), delegate.isCompact(), delegate.getMetrics());
+		if (maxWeight <= 0)
+			throw new IllegalArgumentException("Maximum weight <= 0");
+		this.delegate = delegate;
+		this.maxWeight = maxWeight;
+		encodeCache = new Direction(SEGMENT_COUNT);
+		decodeCache = new Direction(2 * SEGMENT_COUNT);
+	}
+
+	@Override
+	public String mnemonify(String input) {
+		if (AsciiScanner.skipPlain(input, 0, input.length()) == input.length())
+			return delegate.mnemonify(input);
+		int index = segmentIndex(input);
+		String result = encodeCache.segments[index].get(input);
+		if (result == null) {
+			result = delegate.mnemonify(input);
+			encodeCache.put(index, input, result);
+		}
+		return result;
+	}
+
+	@Override
+	public String unmnemonify(String input, boolean strict) {
+		if (input.indexOf('[') == -1)
+			return delegate.unmnemonify(input, strict);
+		int index = segmentIndex(input) + (strict ? SEGMENT_COUNT : 0);
+		String result = decodeCache.segments[index].get(input);
+		if (result == null) {
+			result = delegate.unmnemonify(input, strict);
+			decodeCache.put(index, input, result);
+		}
+		return result;
+	}
+
+	@Override
+	protected String getCodepointInfo(int codepoint) {
+		return delegate.getCodepointInfo(codepoint);
+	}
+
+	@Override
+	protected int getMaxCodepointInfoLength() {
+		return delegate.getMaxCodepointInfoLength();
+	}
+
+	/**
+	 * Return the number of conversions that were answered from the cache.
+	 *
+	 * @return number of cache hits
+	 */
+	public long getHitCount() {
+		long count = 0;
+		for (Direction cache : new Direction[] { encodeCache, decodeCache }) {
+			for (Segment segment : cache.segments) {
+				count += segment.getHitCount();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Return the number of conversions that needed conversion but were not
+	 * found in the cache.
+	 *
+	 * @return number of cache misses
+	 */
+	public long getMissCount() {
+		long count = 0;
+		for (Direction cache : new Direction[] { encodeCache, decodeCache }) {
+			for (Segment segment : cache.segments) {
+				count += segment.getMissCount();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Return the total number of characters of all cached inputs and
+	 * results.
+	 *
+	 * @return current weight of the cache
+	 */
+	public long getWeight() {
+		return encodeCache.weight.get() + decodeCache.weight.get();
+	}
+
+	/**
+	 * Remove all entries from the cache. The statistics are not reset.
+	 */
+	public void clear() {
+		for (Direction cache : new Direction[] { encodeCache, decodeCache }) {
+			for (Segment segment : cache.segments) {
+				segment.clear();
+			}
+		}
+	}
+
+	private int segmentIndex(String input) {
+		int hash = input.hashCode();
+		return (hash ^ (hash >>> 16)) & (SEGMENT_COUNT - 1);
+	}
+
+	/**
+	 * Segments of a cache that share a weight budget.
+	 */
+	private class Direction {
+
+		private final Segment[] segments;
+		private final AtomicLong weight = new AtomicLong();
+		private final AtomicInteger evictionCursor = new AtomicInteger();
+
+		private Direction(int segmentCount) {
+			segments = new Segment[segmentCount];
+			for (int i = 0; i < segmentCount; i++) {
+				segments[i] = new Segment(weight);
+			}
+		}
+
+		private void put(int index, String input, String result) {
+			if ((long) input.length() + result.length() > maxWeight)
+				return;
+			segments[index].put(input, result);
+			// evict without holding the lock of the segment, so that no
+			// thread ever holds two segment locks
+			int idle = 0;
+			while (weight.get() > maxWeight && idle < segments.length) {
+				int cursor = (evictionCursor.getAndIncrement() & Integer.MAX_VALUE) % segments.length;
+				if (segments[cursor].evictEldest(input))
+					idle = 0;
+				else
+					idle++;
+			}
+		}
+	}
+
+	/**
+	 * Part of a cache, which is an LRU map whose weight is added to the weight
+	 * of its direction. Hits and misses are counted per segment, under the
+	 * lock that is held for the lookup anyway.
+	 */
+	private class Segment {
+
+		private final Map<String, String> map = new LinkedHashMap<String, String>(16, 0.75f, true);
+		private final AtomicLong directionWeight;
+		private long weight = 0, hitCount = 0, missCount = 0;
+
+		private Segment(AtomicLong directionWeight) {
+			this.directionWeight = directionWeight;
+		}
+
+		private synchronized String get(String input) {
+			String result = map.get(input);
+			if (result == null)
+				missCount++;
+			else
+				hitCount++;
+			return result;
+		}
+
+		private synchronized long getHitCount() {
+			return hitCount;
+		}
+
+		private synchronized long getMissCount() {
+			return missCount;
+		}
+
+		private synchronized void put(String input, String result) {
+			long entryWeight = (long) input.length() + result.length();
+			String previous = map.put(input, result);
+			if (previous != null)
+				entryWeight -= input.length() + previous.length();
+			addWeight(entryWeight);
+		}
+
+		/**
+		 * Evict the least recently used entry, unless it is the entry that
+		 * has just been added.
+		 *
+		 * @return whether an entry has been evicted
+		 */
+		private synchronized boolean evictEldest(String protectedInput) {
+			if (map.isEmpty())
+				return false;
+			Iterator<Map.Entry<String, String>> it = map.entrySet().iterator();
+			Map.Entry<String, String> eldest = it.next();
+			if (eldest.getKey().equals(protectedInput))
+				return false;
+			addWeight(-(eldest.getKey().length() + eldest.getValue().length()));
+			it.remove();
+			return true;
+		}
+
+		private synchronized void clear() {
+			map.clear();
+			addWeight(-weight);
+		}
+
+		private void addWeight(long delta) {
+			weight += delta;
+			directionWeight.addAndGet(delta);
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package net.sf.mnemonifier;
+
+/**
+ * Records large conversions for {@link MnemonifierMetrics}. The Flight
+ * Recorder implementation is provided by the mnemonifier-jfr module, as it
+ * requires Java 11, and loaded by reflection if it is on the class path.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+interface ConversionRecorder {
+
+	/**
+	 * Start recording a conversion, if recording is enabled.
+	 *
+	 * @return the recording to pass to
+	 *         {@link #commit(Object, String, int, int)}, or {@code null}
+	 */
+	Object start();
+
+	/**
+	 * Finish recording a conversion.
+	 *
+	 * @param recording
+	 *            recording returned by {@link #start()}
+	 * @param operation
+	 *            name of the conversion method
+	 * @param inputLength
+	 *            input length in chars or bytes
+	 * @param outputLength
+	 *            output length, or -1 if the input was invalid
+	 */
+	void commit(Object recording, String operation, int inputLength, int outputLength);
+}
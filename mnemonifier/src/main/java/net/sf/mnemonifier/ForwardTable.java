@@ -0,0 +1,167 @@
+package net.sf.mnemonifier;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Packed table of mnemonics, used to encode characters without building
+ * temporary strings.
+ *
+ * <p>
+ * All mnemonics, including the square brackets around them, are stored in a
+ * single char array. For each page of 256 characters, an offsets array
+ * contains the start offset of every character's bracketed mnemonic; the end
+ * offset is the start offset of the next character.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+final class ForwardTable {
+
+	private final char[] chars;
+	private final int[][] offsets;
+
+	/**
+	 * Pack a forward map.
+	 *
+	 * @param forwardMap
+	 *            forward map, as filled by
+	 *            {@link Mnemonifier#parseMnemonicsMap(java.io.Reader, String[][], java.util.Map)}
+	 */
+	ForwardTable(String[][] forwardMap) {
+		StringBuilder sb = new StringBuilder();
+		offsets = new int[256][];
+		for (int page = 0; page < 256; page++) {
+			if (forwardMap[page] == null)
+				continue;
+			offsets[page] = new int[257];
+			for (int i = 0; i < 256; i++) {
+				offsets[page][i] = sb.length();
+				if (forwardMap[page][i] != null)
+					sb.append('[').append(forwardMap[page][i]).append(']');
+			}
+			offsets[page][256] = sb.length();
+		}
+		chars = sb.toString().toCharArray();
+	}
+
+	/**
+	 * Read a packed table in binary form.
+	 *
+	 * @param in
+	 *            buffer to read from
+	 * @see #write(DataOutputStream)
+	 */
+	ForwardTable(ByteBuffer in) {
+		offsets = new int[256][];
+		int pageCount = in.getShort();
+		int offset = 0;
+		for (int i = 0; i < pageCount; i++) {
+			int[] pageOffsets = offsets[in.get() & 0xFF] = new int[257];
+			for (int j = 0; j < 256; j++) {
+				pageOffsets[j] = offset;
+				offset += in.get() & 0xFF;
+			}
+			pageOffsets[256] = offset;
+		}
+		chars = new char[offset];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) in.get();
+		}
+	}
+
+	/**
+	 * Write this table in binary form. For each page, the page number and the
+	 * lengths of all bracketed mnemonics are written as bytes, followed by all
+	 * mnemonics as ASCII bytes.
+	 *
+	 * @param out
+	 *            stream to write to
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void write(DataOutputStream out) throws IOException {
+		int pageCount = 0;
+		for (int page = 0; page < 256; page++) {
+			if (offsets[page] != null)
+				pageCount++;
+		}
+		out.writeShort(pageCount);
+		for (int page = 0; page < 256; page++) {
+			if (offsets[page] == null)
+				continue;
+			out.writeByte(page);
+			for (int i = 0; i < 256; i++) {
+				int length = offsets[page][i + 1] - offsets[page][i];
+				if (length > 255)
+					throw new IllegalStateException("Mnemonic too long");
+				out.writeByte(length);
+			}
+		}
+		for (int i = 0; i < chars.length; i++) {
+			out.writeByte(chars[i]);
+		}
+	}
+
+	/**
+	 * Return the mnemonic of a character.
+	 *
+	 * @param c
+	 *            character to look up
+	 * @return mnemonic without square brackets, or {@code null}
+	 */
+	String get(char c) {
+		int[] pageOffsets = offsets[c >> 8];
+		if (pageOffsets == null)
+			return null;
+		int start = pageOffsets[c & 0xFF], end = pageOffsets[(c & 0xFF) + 1];
+		if (start == end)
+			return null;
+		return new String(chars, start + 1, end - start - 2);
+	}
+
+	/**
+	 * Check whether a character has a mnemonic.
+	 *
+	 * @param c
+	 *            character to look up
+	 * @return whether there is a mnemonic for this character
+	 */
+	boolean contains(char c) {
+		int[] pageOffsets = offsets[c >> 8];
+		return pageOffsets != null && pageOffsets[c & 0xFF] != pageOffsets[(c & 0xFF) + 1];
+	}
+
+	/**
+	 * Return the length of the bracketed mnemonic of a character.
+	 *
+	 * @param c
+	 *            character to look up
+	 * @return length including the square brackets, or 0 if there is no
+	 *         mnemonic for this character
+	 */
+	int length(char c) {
+		int[] pageOffsets = offsets[c >> 8];
+		return pageOffsets == null ? 0 : pageOffsets[(c & 0xFF) + 1] - pageOffsets[c & 0xFF];
+	}
+
+	/**
+	 * Append the bracketed mnemonic of a character.
+	 *
+	 * @param sb
+	 *            string builder to append to
+	 * @param c
+	 *            character to encode
+	 * @return whether a mnemonic has been appended
+	 */
+	boolean append(StringBuilder sb, char c) {
+		int[] pageOffsets = offsets[c >> 8];
+		if (pageOffsets == null)
+			return false;
+		int start = pageOffsets[c & 0xFF], end = pageOffsets[(c & 0xFF) + 1];
+		if (start == end)
+			return false;
+		sb.append(chars, start, end - start);
+		return true;
+	}
+}
@@ -0,0 +1,209 @@
+package net.sf.mnemonifier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable table of mnemonics used by a {@link Mnemonifier}. Tables can be
+ * shared freely between threads and instances.
+ *
+ * <p>
+ * The {@linkplain #getDefault() default table} contains the RFC1345 mnemonics
+ * and decomposition mappings; each direction of it is loaded lazily when it is
+ * used first. Custom tables, for example the default table extended by
+ * domain-specific mnemonics, can be {@linkplain #create(Map) created} from a
+ * map and used next to the default table.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public final class MnemonicTable {
+
+	private static final MnemonicTable DEFAULT = new MnemonicTable(null, null);
+
+	private volatile ForwardTable forwardTable;
+	private volatile MnemonicTrie reverseTrie;
+	private volatile int maxMnemonicLength = -1;
+
+	private MnemonicTable(ForwardTable forwardTable, MnemonicTrie reverseTrie) {
+		this.forwardTable = forwardTable;
+		this.reverseTrie = reverseTrie;
+	}
+
+	private MnemonicTable(String[][] forwardMap) {
+		this(new ForwardTable(forwardMap), new MnemonicTrie(forwardMap));
+	}
+
+	/**
+	 * Return the default table, which contains the RFC1345 mnemonics and
+	 * decomposition mappings.
+	 *
+	 * @return the default table
+	 */
+	public static MnemonicTable getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Create a custom table.
+	 *
+	 * @param mnemonics
+	 *            map from characters to their mnemonics. Mnemonics may only
+	 *            contain printable ASCII characters except square brackets,
+	 *            must not start with {@code #}, and must be unique. Characters
+	 *            must not be ASCII, as ASCII characters are never encoded.
+	 * @return the new table
+	 * @throws IllegalArgumentException
+	 *             if any mnemonic is invalid
+	 */
+	public static MnemonicTable create(Map<Character, String> mnemonics) {
+		String[][] forwardMap = new String[256][];
+		Set<String> seen = new HashSet<String>();
+		for (Map.Entry<Character, String> entry : mnemonics.entrySet()) {
+			char c = entry.getKey();
+			String mnemonic = entry.getValue();
+			if (c < 128)
+				throw new IllegalArgumentException("ASCII character: " + (int) c);
+			if (mnemonic.length() == 0 || mnemonic.length() > 253 || mnemonic.charAt(0) == '#')
+				throw new IllegalArgumentException("Invalid mnemonic: " + mnemonic);
+			for (int i = 0; i < mnemonic.length(); i++) {
+				char m = mnemonic.charAt(i);
+				if (m <= 32 || m >= 127 || m == '[' || m == ']')
+					throw new IllegalArgumentException("Invalid mnemonic: " + mnemonic);
+			}
+			if (!seen.add(mnemonic))
+				throw new IllegalArgumentException("Duplicate mnemonic: " + mnemonic);
+			if (forwardMap[c / 256] == null)
+				forwardMap[c / 256] = new String[256];
+			forwardMap[c / 256][c % 256] = mnemonic;
+		}
+		return new MnemonicTable(forwardMap);
+	}
+
+	/**
+	 * Load a table from a stream in the format of mnemonics.dat.
+	 *
+	 * @param inputStream
+	 *            Input stream to read from
+	 * @return the loaded table
+	 */
+	static MnemonicTable load(InputStream inputStream) {
+		try {
+			String[][] forwardMap = new String[256][];
+			Reader r = new InputStreamReader(inputStream, "UTF-8");
+			Mnemonifier.parseMnemonicsMap(r, forwardMap, new HashMap<String, Character>());
+			r.close();
+			return new MnemonicTable(forwardMap);
+		} catch (IOException ex) {
+			throw new IllegalStateException("Unable to load mnemonics map", ex);
+		}
+	}
+
+	/**
+	 * Return the mnemonic of a character.
+	 *
+	 * @param c
+	 *            character to look up
+	 * @return mnemonic without square brackets, or {@code null} if this
+	 *         table does not contain a mnemonic for this character
+	 */
+	public String getMnemonic(char c) {
+		return forwardTable().get(c);
+	}
+
+	/**
+	 * Return all mnemonics of this table, for example to create an extended
+	 * table.
+	 *
+	 * @return unmodifiable map from characters to their mnemonics
+	 */
+	public Map<Character, String> toMap() {
+		Map<Character, String> result = new TreeMap<Character, String>();
+		ForwardTable table = forwardTable();
+		for (int i = 128; i <= Character.MAX_VALUE; i++) {
+			String mnemonic = table.get((char) i);
+			if (mnemonic != null)
+				result.put((char) i, mnemonic);
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * Return the length of the longest mnemonic of this table.
+	 *
+	 * @return maximum length of a mnemonic, without square brackets
+	 */
+	int getMaxMnemonicLength() {
+		int result = maxMnemonicLength;
+		if (result == -1) {
+			result = 0;
+			ForwardTable table = forwardTable();
+			for (int i = 128; i <= Character.MAX_VALUE; i++) {
+				String mnemonic = table.get((char) i);
+				if (mnemonic != null)
+					result = Math.max(result, mnemonic.length());
+			}
+			maxMnemonicLength = result;
+		}
+		return result;
+	}
+
+	ForwardTable forwardTable() {
+		ForwardTable result = forwardTable;
+		if (result == null) {
+			synchronized (this) {
+				if (forwardTable == null)
+					loadDefault(false);
+				result = forwardTable;
+			}
+		}
+		return result;
+	}
+
+	MnemonicTrie reverseTrie() {
+		MnemonicTrie result = reverseTrie;
+		if (result == null) {
+			synchronized (this) {
+				if (reverseTrie == null)
+					loadDefault(true);
+				result = reverseTrie;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Load one direction of the default table from the compiled mnemonics
+	 * file, or load both from the text file if there is no compiled file.
+	 *
+	 * @param reverse
+	 *            whether to load the reverse trie instead of the forward
+	 *            table
+	 */
+	private void loadDefault(boolean reverse) {
+		InputStream in = Mnemonifier.class.getResourceAsStream("mnemonics.bin");
+		if (in == null) {
+			MnemonicTable table = load(Mnemonifier.class.getResourceAsStream("mnemonics.dat"));
+			forwardTable = table.forwardTable;
+			reverseTrie = table.reverseTrie;
+			return;
+		}
+		try {
+			ByteBuffer buffer = MnemonicsCompiler.read(in, reverse);
+			if (reverse)
+				reverseTrie = new MnemonicTrie(buffer);
+			else
+				forwardTable = new ForwardTable(buffer);
+		} catch (IOException ex) {
+			throw new IllegalStateException("Unable to load mnemonics map", ex);
+		}
+	}
+}
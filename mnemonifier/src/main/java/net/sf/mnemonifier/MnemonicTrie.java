@@ -0,0 +1,163 @@
+package net.sf.mnemonifier;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Compact trie of mnemonics, used to decode mnemonics without extracting them
+ * from the input first.
+ *
+ * <p>
+ * Nodes are numbered in breadth-first order, with siblings sorted by their
+ * label. Therefore, the children of every node form a contiguous range of
+ * edges, and the node reached by edge {@code i} is node {@code i + 1}.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+final class MnemonicTrie {
+
+	/** Node number of the root node. */
+	static final int ROOT = 0;
+
+	private final int[] edgeStart;
+	private final char[] edgeLabels;
+	private final char[] values;
+
+	/**
+	 * Build a trie from a forward map.
+	 *
+	 * @param forwardMap
+	 *            forward map, as filled by
+	 *            {@link Mnemonifier#parseMnemonicsMap(java.io.Reader, String[][], Map)}
+	 */
+	MnemonicTrie(String[][] forwardMap) {
+		Map<String, Character> mnemonics = new HashMap<String, Character>();
+		TreeSet<String> prefixes = new TreeSet<String>(new Comparator<String>() {
+			public int compare(String s1, String s2) {
+				if (s1.length() != s2.length())
+					return s1.length() - s2.length();
+				return s1.compareTo(s2);
+			}
+		});
+		// the root node exists even if there are no mnemonics
+		prefixes.add("");
+		for (int page = 0; page < forwardMap.length; page++) {
+			if (forwardMap[page] == null)
+				continue;
+			for (int i = 0; i < forwardMap[page].length; i++) {
+				String mnemonic = forwardMap[page][i];
+				if (mnemonic == null)
+					continue;
+				mnemonics.put(mnemonic, (char) (page * 256 + i));
+				for (int j = 0; j <= mnemonic.length(); j++) {
+					prefixes.add(mnemonic.substring(0, j));
+				}
+			}
+		}
+		Map<String, Integer> nodes = new HashMap<String, Integer>();
+		int[] edgeCount = new int[prefixes.size() + 1];
+		edgeLabels = new char[prefixes.size() - 1];
+		values = new char[prefixes.size()];
+		for (String prefix : prefixes) {
+			int node = nodes.size();
+			nodes.put(prefix, node);
+			Character value = mnemonics.get(prefix);
+			if (value != null)
+				values[node] = value;
+			if (node != ROOT) {
+				edgeLabels[node - 1] = prefix.charAt(prefix.length() - 1);
+				edgeCount[nodes.get(prefix.substring(0, prefix.length() - 1))]++;
+			}
+		}
+		edgeStart = new int[prefixes.size() + 1];
+		for (int i = 0; i < prefixes.size(); i++) {
+			edgeStart[i + 1] = edgeStart[i] + edgeCount[i];
+		}
+	}
+
+	/**
+	 * Read a trie in binary form.
+	 *
+	 * @param in
+	 *            buffer to read from
+	 * @see #write(DataOutputStream)
+	 */
+	MnemonicTrie(ByteBuffer in) {
+		int nodeCount = in.getInt();
+		edgeStart = new int[nodeCount + 1];
+		for (int i = 0; i < nodeCount; i++) {
+			edgeStart[i + 1] = edgeStart[i] + (in.get() & 0xFF);
+		}
+		edgeLabels = new char[nodeCount - 1];
+		for (int i = 0; i < edgeLabels.length; i++) {
+			edgeLabels[i] = (char) in.get();
+		}
+		values = new char[nodeCount];
+		in.asCharBuffer().get(values);
+		in.position(in.position() + 2 * nodeCount);
+	}
+
+	/**
+	 * Write this trie in binary form. The number of children of each node and
+	 * the edge labels are written as bytes, followed by the value of every
+	 * node.
+	 *
+	 * @param out
+	 *            stream to write to
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(values.length);
+		for (int i = 0; i < values.length; i++) {
+			out.writeByte(edgeStart[i + 1] - edgeStart[i]);
+		}
+		for (int i = 0; i < edgeLabels.length; i++) {
+			out.writeByte(edgeLabels[i]);
+		}
+		for (int i = 0; i < values.length; i++) {
+			out.writeChar(values[i]);
+		}
+	}
+
+	/**
+	 * Follow an edge of the trie.
+	 *
+	 * @param node
+	 *            node to start from
+	 * @param label
+	 *            label of the edge to follow
+	 * @return node reached, or {@code -1} if there is no such edge
+	 */
+	int next(int node, char label) {
+		int low = edgeStart[node], high = edgeStart[node + 1] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			char midLabel = edgeLabels[mid];
+			if (midLabel < label)
+				low = mid + 1;
+			else if (midLabel > label)
+				high = mid - 1;
+			else
+				return mid + 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Return the character represented by the mnemonic that leads to a node.
+	 *
+	 * @param node
+	 *            node to check
+	 * @return decoded character, or {@code 0} if the node does not represent
+	 *         a complete mnemonic
+	 */
+	char value(int node) {
+		return values[node];
+	}
+}
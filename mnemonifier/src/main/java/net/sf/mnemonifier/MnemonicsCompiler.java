@@ -0,0 +1,87 @@
+package net.sf.mnemonifier;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+/**
+ * Utility class to compile mnemonics.dat file into the binary mnemonics.bin
+ * file, which is used by the build to speed up loading the mnemonics map.
+ *
+ * <p>
+ * The binary file starts with a magic number and the length of the forward
+ * table, followed by the forward table and the reverse trie, so that each of
+ * them can be read without reading the other one.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class MnemonicsCompiler {
+
+	static final int MAGIC = 0x4D4E4D01;
+
+	/**
+	 * Main method for mnemonics compiler.
+	 *
+	 * @param args
+	 *            Command line arguments: input file name and output file name
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: java net.sf.mnemonifier.MnemonicsCompiler <mnemonics.dat> <mnemonics.bin>");
+			return;
+		}
+		String[][] forwardMap = new String[256][];
+		Reader r = new InputStreamReader(new FileInputStream(args[0]), "UTF-8");
+		Mnemonifier.parseMnemonicsMap(r, forwardMap, new HashMap<String, Character>());
+		r.close();
+		ByteArrayOutputStream forwardBytes = new ByteArrayOutputStream();
+		DataOutputStream forwardOut = new DataOutputStream(forwardBytes);
+		new ForwardTable(forwardMap).write(forwardOut);
+		forwardOut.close();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(args[1])));
+		out.writeInt(MAGIC);
+		out.writeInt(forwardBytes.size());
+		forwardBytes.writeTo(out);
+		new MnemonicTrie(forwardMap).write(out);
+		out.close();
+	}
+
+	/**
+	 * Read a compiled mnemonics file completely.
+	 *
+	 * @param inputStream
+	 *            Input stream to read from
+	 * @param reverse
+	 *            whether to position the buffer at the reverse trie instead
+	 *            of the forward table
+	 * @return buffer positioned at the requested table
+	 * @throws IOException
+	 *             if an I/O error occurs or the file is invalid
+	 */
+	static ByteBuffer read(InputStream inputStream, boolean reverse) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[16384];
+		int len;
+		while ((len = inputStream.read(buffer)) != -1) {
+			baos.write(buffer, 0, len);
+		}
+		inputStream.close();
+		ByteBuffer in = ByteBuffer.wrap(baos.toByteArray());
+		if (in.remaining() < 8 || in.getInt() != MAGIC)
+			throw new IOException("Invalid compiled mnemonics file");
+		int forwardLength = in.getInt();
+		if (reverse)
+			in.position(in.position() + forwardLength);
+		return in;
+	}
+}
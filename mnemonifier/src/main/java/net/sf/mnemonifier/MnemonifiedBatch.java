@@ -0,0 +1,131 @@
+package net.sf.mnemonifier;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Mnemonified forms of many strings, stored in columnar form: all results are
+ * concatenated in a single char array, and an offsets array contains the
+ * start offset of every result, followed by the end offset of the last one.
+ * This avoids allocating a string builder and a string for every input.
+ *
+ * <p>
+ * Inputs that do not need any conversion are copied in bulk without running
+ * them through the encoder. As mnemonified text is ASCII-only, the same
+ * offsets can be used for the {@linkplain #toASCIIBytes() byte form} of the
+ * data.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ * @see Mnemonifier#mnemonifyBatch(List)
+ * @see ParallelMnemonifier#mnemonifyBatch(List)
+ */
+public final class MnemonifiedBatch {
+
+	private final char[] data;
+	private final int[] offsets;
+
+	MnemonifiedBatch(char[] data, int[] offsets) {
+		this.data = data;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Encode a range of inputs.
+	 *
+	 * @param mnemonifier
+	 *            mnemonifier to use for encoding
+	 * @param inputs
+	 *            original texts
+	 * @param from
+	 *            index of the first input to encode
+	 * @param to
+	 *            index after the last input to encode
+	 * @param sb
+	 *            string builder to append all results to
+	 * @param ends
+	 *            array to store the end offset of each result in
+	 *            {@code sb} into
+	 * @param endsIndex
+	 *            index in {@code ends} to store the end offset of the first
+	 *            result at
+	 */
+	static void encode(Mnemonifier mnemonifier, List<? extends CharSequence> inputs, int from, int to, StringBuilder sb, int[] ends, int endsIndex) {
+		for (int i = from; i < to; i++) {
+			CharSequence input = inputs.get(i);
+			int length = input.length();
+			int plainEnd = AsciiScanner.skipPlain(input, 0, length);
+			if (plainEnd == length && input instanceof String) {
+				sb.append((String) input);
+			} else {
+				sb.append(input, 0, plainEnd);
+				if (plainEnd < length)
+					mnemonifier.mnemonify(input, plainEnd, length, sb);
+			}
+			ends[endsIndex + i - from] = sb.length();
+		}
+	}
+
+	/**
+	 * Return the number of results.
+	 *
+	 * @return number of results
+	 */
+	public int size() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Return the concatenated results. The array must not be modified.
+	 *
+	 * @return concatenated results
+	 */
+	public char[] getData() {
+		return data;
+	}
+
+	/**
+	 * Return the offsets of the results. Result {@code i} starts at
+	 * {@code offsets[i]} and ends at {@code offsets[i + 1]}. The array must
+	 * not be modified.
+	 *
+	 * @return array of {@link #size()}{@code + 1} offsets
+	 */
+	public int[] getOffsets() {
+		return offsets;
+	}
+
+	/**
+	 * Return a single result as string.
+	 *
+	 * @param index
+	 *            index of the result
+	 * @return mnemonified form of input {@code index}
+	 */
+	public String get(int index) {
+		return new String(data, offsets[index], offsets[index + 1] - offsets[index]);
+	}
+
+	/**
+	 * Return the concatenated results as ASCII bytes.
+	 *
+	 * @return concatenated results, one byte per char
+	 */
+	public byte[] toASCIIBytes() {
+		byte[] result = new byte[data.length];
+		putASCIIBytes(ByteBuffer.wrap(result));
+		return result;
+	}
+
+	/**
+	 * Put the concatenated results as ASCII bytes into a buffer.
+	 *
+	 * @param out
+	 *            buffer with at least {@code getData().length} bytes
+	 *            remaining
+	 */
+	public void putASCIIBytes(ByteBuffer out) {
+		for (int i = 0; i < data.length; i++) {
+			out.put((byte) data[i]);
+		}
+	}
+}
@@ -0,0 +1,369 @@
+package net.sf.mnemonifier;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * Charset that encodes Unicode text into mnemonified ASCII bytes and decodes
+ * them back. Two instances are registered by
+ * {@link MnemonifiedCharsetProvider}: {@code X-MNEMONIFIED} uses lax decoding
+ * rules, {@code X-MNEMONIFIED-STRICT} uses strict decoding rules. Further
+ * instances can be created for {@link Mnemonifier} subclasses.
+ *
+ * <p>
+ * Invalid input of the strict decoder is reported as malformed input. The lax
+ * decoder never reports malformed input; bytes outside of ASCII are decoded as
+ * ISO-8859-1, and tokens that represent codepoints outside of the Unicode
+ * range are passed unchanged. Lone surrogates are encoded as hex code, like
+ * {@link Mnemonifier#mnemonify(String)} does.
+ *
+ * <p>
+ * The maximum number of bytes per character of the encoder is derived from
+ * the longest mnemonic and the maximum length of the codepoint information,
+ * so that {@link String#getBytes(Charset)} never runs out of space. Tokens
+ * that do not fit into the output buffer are written partially and
+ * completed by the next call.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class MnemonifiedCharset extends Charset {
+
+	private static final int MAX_PENDING = 8192;
+
+	private final Mnemonifier mnemonifier;
+	private final boolean strict;
+
+	/**
+	 * Create a new mnemonified charset.
+	 *
+	 * @param mnemonifier
+	 *            mnemonifier to use for encoding and decoding
+	 * @param strict
+	 *            whether to use strict decoding rules
+	 * @throws IllegalArgumentException
+	 *             if the mnemonifier does not limit the length of its
+	 *             codepoint information
+	 * @see Mnemonifier#getMaxCodepointInfoLength()
+	 */
+	public MnemonifiedCharset(Mnemonifier mnemonifier, boolean strict) {
+		super(strict ? "X-MNEMONIFIED-STRICT" : "X-MNEMONIFIED", null);
+		this.mnemonifier = mnemonifier;
+		this.strict = strict;
+		if (mnemonifier.getMaxCodepointInfoLength() == -1)
+			throw new IllegalArgumentException("Length of codepoint information is not limited");
+	}
+
+	@Override
+	public boolean contains(Charset cs) {
+		return true;
+	}
+
+	@Override
+	public CharsetDecoder newDecoder() {
+		return new Decoder();
+	}
+
+	@Override
+	public CharsetEncoder newEncoder() {
+		return new Encoder();
+	}
+
+	private class Encoder extends CharsetEncoder {
+
+		/**
+		 * Token that is written to the output, and how much of it has been
+		 * written already.
+		 */
+		private final StringBuilder token = new StringBuilder();
+		private int tokenPosition = 0;
+		private char pendingHighSurrogate = 0;
+		private boolean groupOpen = false;
+		private final MnemonifierMetrics.CodepointCounts counts = mnemonifier.newCodepointCounts();
+
+		private Encoder() {
+			super(MnemonifiedCharset.this, 1.1f, mnemonifier.getMaxTokenLength());
+		}
+
+		@Override
+		protected CoderResult encodeLoop(CharBuffer in, ByteBuffer out) {
+			CoderResult result = encodeCodepoints(in, out);
+			mnemonifier.recordCodepointCounts(counts);
+			return result;
+		}
+
+		private CoderResult encodeCodepoints(CharBuffer in, ByteBuffer out) {
+			if (!drainToken(out))
+				return CoderResult.OVERFLOW;
+			while (in.hasRemaining()) {
+				char c = in.get(in.position());
+				int codepoint = c, consumed = 1;
+				if (pendingHighSurrogate != 0) {
+					if (Character.isLowSurrogate(c)) {
+						codepoint = Character.toCodePoint(pendingHighSurrogate, c);
+					} else {
+						codepoint = pendingHighSurrogate;
+						consumed = 0;
+					}
+				} else if (Character.isHighSurrogate(c)) {
+					if (in.remaining() == 1) {
+						pendingHighSurrogate = c;
+						in.get();
+						continue;
+					} else if (Character.isLowSurrogate(in.get(in.position() + 1))) {
+						codepoint = Character.toCodePoint(c, in.get(in.position() + 1));
+						consumed = 2;
+					}
+				} else if (c < 128 && c != '[' && c != ']') {
+					if (out.remaining() < (groupOpen ? 2 : 1))
+						return CoderResult.OVERFLOW;
+					if (groupOpen)
+						out.put((byte) ']');
+					groupOpen = false;
+					out.put((byte) c);
+					in.get();
+					continue;
+				}
+				pendingHighSurrogate = 0;
+				in.position(in.position() + consumed);
+				if (!putToken(out, codepoint))
+					return CoderResult.OVERFLOW;
+			}
+			return CoderResult.UNDERFLOW;
+		}
+
+		/**
+		 * Encode a codepoint and write as much of its token as possible. The
+		 * codepoint is always consumed.
+		 *
+		 * @return whether the token has been written completely
+		 */
+		private boolean putToken(ByteBuffer out, int codepoint) {
+			token.setLength(0);
+			tokenPosition = 0;
+			groupOpen = mnemonifier.appendMnemonifiedCodepoint(token, codepoint, groupOpen, counts);
+			return drainToken(out);
+		}
+
+		/**
+		 * Write as many bytes of the current token as possible.
+		 *
+		 * @return whether the token has been written completely
+		 */
+		private boolean drainToken(ByteBuffer out) {
+			int count = Math.min(token.length() - tokenPosition, out.remaining());
+			for (int i = 0; i < count; i++) {
+				char c = token.charAt(tokenPosition++);
+				out.put(c < 256 ? (byte) c : (byte) '?');
+			}
+			return tokenPosition == token.length();
+		}
+
+		@Override
+		protected CoderResult implFlush(ByteBuffer out) {
+			if (!drainToken(out))
+				return CoderResult.OVERFLOW;
+			if (pendingHighSurrogate != 0) {
+				char high = pendingHighSurrogate;
+				pendingHighSurrogate = 0;
+				boolean complete = putToken(out, high);
+				mnemonifier.recordCodepointCounts(counts);
+				if (!complete)
+					return CoderResult.OVERFLOW;
+			}
+			if (groupOpen) {
+				if (!out.hasRemaining())
+					return CoderResult.OVERFLOW;
+				out.put((byte) ']');
+				groupOpen = false;
+			}
+			return CoderResult.UNDERFLOW;
+		}
+
+		@Override
+		protected void implReset() {
+			token.setLength(0);
+			tokenPosition = 0;
+			pendingHighSurrogate = 0;
+			groupOpen = false;
+		}
+
+		@Override
+		public boolean canEncode(char c) {
+			return true;
+		}
+
+		@Override
+		public boolean canEncode(CharSequence cs) {
+			return true;
+		}
+	}
+
+	private class Decoder extends CharsetDecoder {
+
+		/**
+		 * Bytes of a token that may be completed by further input, only used
+		 * by the lax decoder. The strict decoder leaves such tokens in the
+		 * input buffer instead, so that they are reported as malformed at the
+		 * end of the input.
+		 */
+		private final StringBuilder pending = new StringBuilder();
+
+		/**
+		 * Characters of a decoded group that did not fit into the output
+		 * buffer yet.
+		 */
+		private final StringBuilder group = new StringBuilder();
+
+		private Decoder() {
+			super(MnemonifiedCharset.this, 1f, 1f);
+		}
+
+		@Override
+		protected CoderResult decodeLoop(ByteBuffer in, CharBuffer out) {
+			ByteSequence input = new ByteSequence(in);
+			while (true) {
+				if (!drainGroup(out))
+					return CoderResult.OVERFLOW;
+				if (pending.length() > 0) {
+					CoderResult result = decodePending(in, out, false);
+					if (result != null)
+						return result;
+				}
+				int pos = in.position(), end = in.limit();
+				try {
+					while (pos < end) {
+						char c = input.charAt(pos);
+						if (c != '[') {
+							if (strict && (c == ']' || c >= 128))
+								return CoderResult.malformedForLength(1);
+							if (!out.hasRemaining())
+								return CoderResult.OVERFLOW;
+							out.put(c);
+							pos++;
+							continue;
+						}
+						long token = mnemonifier.decodeToken(input, pos, end, false, strict);
+						if (token == Mnemonifier.TOKEN_INCOMPLETE) {
+							if (strict)
+								return CoderResult.UNDERFLOW;
+							while (pos < end)
+								pending.append(input.charAt(pos++));
+							break;
+						}
+						if (token < 0) {
+							if (strict)
+								return CoderResult.malformedForLength(1);
+							if (!out.hasRemaining())
+								return CoderResult.OVERFLOW;
+							out.put('[');
+							pos++;
+							continue;
+						}
+						if (!putToken(out, input, pos, token))
+							return CoderResult.OVERFLOW;
+						pos += (int) (token >>> 32);
+						if (group.length() > 0)
+							return CoderResult.OVERFLOW;
+					}
+				} finally {
+					in.position(pos);
+				}
+				if (pending.length() == 0)
+					return CoderResult.UNDERFLOW;
+			}
+		}
+
+		/**
+		 * Decode the pending bytes, taking more bytes from the input if
+		 * needed.
+		 *
+		 * @return result of decoding, or {@code null} if all pending bytes
+		 *         have been decoded
+		 */
+		private CoderResult decodePending(ByteBuffer in, CharBuffer out, boolean endOfInput) {
+			while (pending.length() > 0) {
+				if (!drainGroup(out))
+					return CoderResult.OVERFLOW;
+				char c = pending.charAt(0);
+				if (c != '[') {
+					if (!out.hasRemaining())
+						return CoderResult.OVERFLOW;
+					out.put(c);
+					pending.deleteCharAt(0);
+					continue;
+				}
+				long token = mnemonifier.decodeToken(pending, 0, pending.length(), endOfInput, false);
+				while (token == Mnemonifier.TOKEN_INCOMPLETE && in.hasRemaining() && pending.length() < MAX_PENDING) {
+					pending.append((char) (in.get() & 0xFF));
+					token = mnemonifier.decodeToken(pending, 0, pending.length(), false, false);
+				}
+				if (token == Mnemonifier.TOKEN_INCOMPLETE && pending.length() < MAX_PENDING)
+					return CoderResult.UNDERFLOW;
+				if (token < 0) {
+					if (!out.hasRemaining())
+						return CoderResult.OVERFLOW;
+					out.put('[');
+					pending.deleteCharAt(0);
+					continue;
+				}
+				if (!putToken(out, pending, 0, token))
+					return CoderResult.OVERFLOW;
+				pending.delete(0, (int) (token >>> 32));
+				if (group.length() > 0)
+					return CoderResult.OVERFLOW;
+			}
+			return null;
+		}
+
+		private boolean putToken(CharBuffer out, CharSequence input, int offset, long token) {
+			if (((int) token & Mnemonifier.TOKEN_GROUP) != 0) {
+				// a group may not fit at all, so it is always consumed
+				Mnemonifier.appendToken(input, offset, token, group);
+				drainGroup(out);
+				return true;
+			}
+			int codepoint = (int) token;
+			if (out.remaining() < Character.charCount(codepoint))
+				return false;
+			if (Character.isSupplementaryCodePoint(codepoint)) {
+				out.put(Character.highSurrogate(codepoint));
+				out.put(Character.lowSurrogate(codepoint));
+			} else {
+				out.put((char) codepoint);
+			}
+			return true;
+		}
+
+		/**
+		 * Write as many characters of the decoded group as possible.
+		 *
+		 * @return whether the group has been written completely
+		 */
+		private boolean drainGroup(CharBuffer out) {
+			int count = Math.min(group.length(), out.remaining());
+			for (int i = 0; i < count; i++) {
+				out.put(group.charAt(i));
+			}
+			group.delete(0, count);
+			return group.length() == 0;
+		}
+
+		@Override
+		protected CoderResult implFlush(CharBuffer out) {
+			if (!drainGroup(out))
+				return CoderResult.OVERFLOW;
+			CoderResult result = decodePending(ByteBuffer.allocate(0), out, true);
+			return result == null ? CoderResult.UNDERFLOW : result;
+		}
+
+		@Override
+		protected void implReset() {
+			pending.setLength(0);
+			group.setLength(0);
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package net.sf.mnemonifier;
+
+import java.nio.charset.Charset;
+import java.nio.charset.spi.CharsetProvider;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Charset provider for the {@code X-MNEMONIFIED} and
+ * {@code X-MNEMONIFIED-STRICT} charsets.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ * @see MnemonifiedCharset
+ */
+public class MnemonifiedCharsetProvider extends CharsetProvider {
+
+	private final List<Charset> charsets;
+
+	/**
+	 * Class constructor.
+	 */
+	public MnemonifiedCharsetProvider() {
+		Mnemonifier mnemonifier = new Mnemonifier();
+		charsets = Arrays.<Charset> asList(new MnemonifiedCharset(mnemonifier, false), new MnemonifiedCharset(mnemonifier, true));
+	}
+
+	@Override
+	public Iterator<Charset> charsets() {
+		return charsets.iterator();
+	}
+
+	@Override
+	public Charset charsetForName(String charsetName) {
+		for (Charset charset : charsets) {
+			if (charset.name().equalsIgnoreCase(charsetName))
+				return charset;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,138 @@
+package net.sf.mnemonifier;
+
+import java.util.Comparator;
+
+/**
+ * Comparator that orders mnemonified strings by the codepoints of their
+ * original strings, without unmnemonifying them. Tokens are decoded on the
+ * fly using lax decoding rules, so that different encodings of the same
+ * character (for example {@code [ss]} and {@code [#DF]}) and normal and
+ * compact output compare as equal.
+ *
+ * <p>
+ * Note that codepoint order differs from the order of
+ * {@link String#compareTo(String)} for supplementary characters, which are
+ * sorted after all characters of the basic multilingual plane.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class MnemonifiedComparator implements Comparator<CharSequence> {
+
+	private final Mnemonifier mnemonifier;
+
+	/**
+	 * Create a new comparator.
+	 *
+	 * @param mnemonifier
+	 *            mnemonifier whose mnemonics should be decoded
+	 */
+	public MnemonifiedComparator(Mnemonifier mnemonifier) {
+		this.mnemonifier = mnemonifier;
+	}
+
+	/**
+	 * Compare two mnemonified strings by the codepoints of their original
+	 * strings.
+	 *
+	 * @param first
+	 *            first mnemonified string
+	 * @param second
+	 *            second mnemonified string
+	 * @return a negative number, zero, or a positive number if the first
+	 *         original string is less than, equal to, or greater than the
+	 *         second one
+	 * @throws IllegalArgumentException
+	 *             if any of the strings contains a codepoint that is out of
+	 *             range
+	 */
+	public int compare(CharSequence first, CharSequence second) {
+		int firstLength = first.length(), secondLength = second.length();
+		int firstState = 0, secondState = 0;
+		while (true) {
+			// skip common plain characters; tokens and surrogate pairs need
+			// to be decoded as they may decode to a different codepoint
+			while (firstState >= 0 && secondState >= 0 && firstState < firstLength && secondState < secondLength) {
+				char c = first.charAt(firstState);
+				if (c != second.charAt(secondState) || c == '[' || Character.isHighSurrogate(c))
+					break;
+				firstState++;
+				secondState++;
+			}
+			if (firstState == firstLength)
+				return secondState == secondLength ? 0 : -1;
+			if (secondState == secondLength)
+				return 1;
+			long firstNext = nextCodepoint(first, firstState), secondNext = nextCodepoint(second, secondState);
+			int firstCodepoint = (int) firstNext, secondCodepoint = (int) secondNext;
+			if (firstCodepoint != secondCodepoint)
+				return firstCodepoint < secondCodepoint ? -1 : 1;
+			firstState = (int) (firstNext >>> 32);
+			secondState = (int) (secondNext >>> 32);
+		}
+	}
+
+	/**
+	 * Decode the next codepoint, and combine a high surrogate with a
+	 * following low surrogate, even if one or both of them are encoded as
+	 * separate tokens.
+	 */
+	private long nextCodepoint(CharSequence input, int state) {
+		long next = mnemonifier.nextCodepoint(input, state, false);
+		int nextState = (int) (next >>> 32);
+		if (!Character.isHighSurrogate((char) next) || (int) next != (char) next || nextState == input.length())
+			return next;
+		long low = mnemonifier.nextCodepoint(input, nextState, false);
+		if ((int) low != (char) low || !Character.isLowSurrogate((char) low))
+			return next;
+		return (low & 0xFFFFFFFF00000000L) | Character.toCodePoint((char) next, (char) low);
+	}
+
+	/**
+	 * Test whether two mnemonified strings have the same original string.
+	 *
+	 * @param first
+	 *            first mnemonified string
+	 * @param second
+	 *            second mnemonified string
+	 * @return whether the original strings are equal
+	 * @throws IllegalArgumentException
+	 *             if any of the strings contains a codepoint that is out of
+	 *             range
+	 */
+	public boolean equal(CharSequence first, CharSequence second) {
+		return compare(first, second) == 0;
+	}
+
+	/**
+	 * Compute the hash code of the original string of a mnemonified string,
+	 * without unmnemonifying it. The result is the same as the
+	 * {@link String#hashCode()} of the original string, and consistent with
+	 * {@link #equal(CharSequence, CharSequence)}.
+	 *
+	 * @param input
+	 *            mnemonified string
+	 * @return hash code of the original string
+	 * @throws IllegalArgumentException
+	 *             if the string contains a codepoint that is out of range
+	 */
+	public int hash(CharSequence input) {
+		int length = input.length(), state = 0, hash = 0;
+		while (state != length) {
+			if (state >= 0 && input.charAt(state) != '[') {
+				hash = 31 * hash + input.charAt(state);
+				state++;
+				continue;
+			}
+			long next = mnemonifier.nextCodepoint(input, state, false);
+			int codepoint = (int) next;
+			if (Character.isSupplementaryCodePoint(codepoint)) {
+				hash = 31 * hash + Character.highSurrogate(codepoint);
+				hash = 31 * hash + Character.lowSurrogate(codepoint);
+			} else {
+				hash = 31 * hash + codepoint;
+			}
+			state = (int) (next >>> 32);
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,62 @@
+package net.sf.mnemonifier;
+
+/**
+ * Match found by a {@link MnemonifiedSearcher}, with its offsets both in the
+ * mnemonified text and in the original text.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public final class MnemonifiedMatch {
+
+	private final long encodedStart, encodedEnd, decodedStart, decodedEnd;
+
+	MnemonifiedMatch(long encodedStart, long encodedEnd, long decodedStart, long decodedEnd) {
+		this.encodedStart = encodedStart;
+		this.encodedEnd = encodedEnd;
+		this.decodedStart = decodedStart;
+		this.decodedEnd = decodedEnd;
+	}
+
+	/**
+	 * Return the offset of the match in the mnemonified text. If the match
+	 * starts inside a group of hex codes, this is the offset of the group.
+	 *
+	 * @return offset of the first token of the match
+	 */
+	public long getEncodedStart() {
+		return encodedStart;
+	}
+
+	/**
+	 * Return the offset after the match in the mnemonified text. If the match
+	 * ends inside a group of hex codes, this is the offset after the group.
+	 *
+	 * @return offset after the last token of the match
+	 */
+	public long getEncodedEnd() {
+		return encodedEnd;
+	}
+
+	/**
+	 * Return the offset of the match in the original text.
+	 *
+	 * @return offset of the first character of the match
+	 */
+	public long getDecodedStart() {
+		return decodedStart;
+	}
+
+	/**
+	 * Return the offset after the match in the original text.
+	 *
+	 * @return offset after the last character of the match
+	 */
+	public long getDecodedEnd() {
+		return decodedEnd;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + encodedStart + "-" + encodedEnd + "] -> [" + decodedStart + "-" + decodedEnd + "]";
+	}
+}
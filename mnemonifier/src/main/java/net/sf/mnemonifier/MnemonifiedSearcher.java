@@ -0,0 +1,228 @@
+package net.sf.mnemonifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Searcher that finds original text inside mnemonified text, without
+ * unmnemonifying it.
+ *
+ * <p>
+ * The pattern is compiled into its codepoints and the first character it can
+ * start with when encoded. Any occurrence of the pattern in mnemonified text
+ * starts either with that character or with an opening square bracket, so
+ * the text between such candidates is skipped by a plain character scan
+ * (using {@link String#indexOf(int, int)} for strings). At a candidate,
+ * tokens are decoded on the fly using lax decoding rules and compared to the
+ * pattern. Therefore, every encoding of the pattern is found (mnemonics, hex
+ * codes with or without codepoint information, hex codes inside compact
+ * groups, and literals passed through by lax decoding), while the content of
+ * tokens (like the digits of a hex code) is never matched as text.
+ *
+ * <p>
+ * Matches do not overlap. Their offsets are reported both in mnemonified and
+ * in original text. Text can be searched at once, or fed in chunks of any
+ * size, in which case tokens and matches may span chunks. Instances are not
+ * thread-safe.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class MnemonifiedSearcher {
+
+	private static final int MATCH = 0, NO_MATCH = 1, INCOMPLETE = 2;
+
+	private final Mnemonifier mnemonifier;
+	private final int[] pattern;
+	private final int patternLength;
+	private final char firstChar;
+	private final StringBuilder buffer = new StringBuilder();
+	private long bufferOffset, decodedOffset;
+	private int state, tokenStart, nextBracket, nextFirst;
+	private int matchEndState, matchTokenStart;
+
+	/**
+	 * Create a new searcher.
+	 *
+	 * @param mnemonifier
+	 *            mnemonifier whose mnemonics should be decoded
+	 * @param pattern
+	 *            original text to search for
+	 */
+	public MnemonifiedSearcher(Mnemonifier mnemonifier, String pattern) {
+		if (pattern.length() == 0)
+			throw new IllegalArgumentException("Empty pattern");
+		this.mnemonifier = mnemonifier;
+		this.pattern = new int[pattern.codePointCount(0, pattern.length())];
+		for (int i = 0, j = 0; i < pattern.length(); j++) {
+			this.pattern[j] = pattern.codePointAt(i);
+			i += Character.charCount(this.pattern[j]);
+		}
+		patternLength = pattern.length();
+		firstChar = pattern.charAt(0);
+		reset();
+	}
+
+	/**
+	 * Find the first match in a mnemonified text. Text fed by
+	 * {@link #feed(CharSequence, boolean)} is discarded.
+	 *
+	 * @param text
+	 *            mnemonified text
+	 * @return the first match, or {@code null}
+	 * @throws IllegalArgumentException
+	 *             if the text contains a codepoint that is out of range before
+	 *             the first match
+	 */
+	public MnemonifiedMatch find(CharSequence text) {
+		List<MnemonifiedMatch> matches = search(text, 1);
+		return matches.isEmpty() ? null : matches.get(0);
+	}
+
+	/**
+	 * Find all matches in a mnemonified text. Text fed by
+	 * {@link #feed(CharSequence, boolean)} is discarded.
+	 *
+	 * @param text
+	 *            mnemonified text
+	 * @return all matches
+	 * @throws IllegalArgumentException
+	 *             if the text contains a codepoint that is out of range
+	 */
+	public List<MnemonifiedMatch> findAll(CharSequence text) {
+		return search(text, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Feed the next chunk of a mnemonified text. Offsets of matches are
+	 * relative to the first chunk fed after creating or resetting this
+	 * searcher. Text that may still be part of a match is kept until the next
+	 * call.
+	 *
+	 * @param chunk
+	 *            next chunk of mnemonified text
+	 * @param endOfInput
+	 *            whether no more chunks follow; if {@code true}, the searcher
+	 *            is reset afterwards
+	 * @return matches that end in this chunk
+	 * @throws IllegalArgumentException
+	 *             if the text contains a codepoint that is out of range
+	 */
+	public List<MnemonifiedMatch> feed(CharSequence chunk, boolean endOfInput) {
+		buffer.append(chunk);
+		List<MnemonifiedMatch> matches = new ArrayList<MnemonifiedMatch>();
+		search(buffer, buffer.length(), endOfInput, matches, Integer.MAX_VALUE);
+		if (endOfInput) {
+			reset();
+		} else {
+			int keep = state >= 0 ? state : tokenStart;
+			buffer.delete(0, keep);
+			bufferOffset += keep;
+			state = state >= 0 ? state - keep : state + keep;
+			tokenStart -= keep;
+		}
+		return matches;
+	}
+
+	/**
+	 * Discard all text fed by {@link #feed(CharSequence, boolean)}, to start
+	 * searching a new text.
+	 */
+	public void reset() {
+		buffer.setLength(0);
+		bufferOffset = decodedOffset = 0;
+		state = tokenStart = 0;
+	}
+
+	private List<MnemonifiedMatch> search(CharSequence text, int maxMatches) {
+		reset();
+		List<MnemonifiedMatch> matches = new ArrayList<MnemonifiedMatch>();
+		try {
+			search(text, text.length(), true, matches, maxMatches);
+		} finally {
+			reset();
+		}
+		return matches;
+	}
+
+	private void search(CharSequence text, int end, boolean endOfInput, List<MnemonifiedMatch> matches, int maxMatches) {
+		nextBracket = nextFirst = -1;
+		while (matches.size() < maxMatches) {
+			if (state >= 0) {
+				int candidate = findCandidate(text, state, end);
+				decodedOffset += candidate - state;
+				state = tokenStart = candidate;
+				if (state == end)
+					return;
+			}
+			int result = match(text, end, endOfInput);
+			if (result == INCOMPLETE)
+				return;
+			if (result == MATCH) {
+				int encodedEnd = matchEndState;
+				while (encodedEnd < 0) {
+					encodedEnd = (int) (mnemonifier.nextCodepoint(text, encodedEnd, end, endOfInput, false) >>> 32);
+				}
+				matches.add(new MnemonifiedMatch(bufferOffset + tokenStart, bufferOffset + encodedEnd, decodedOffset, decodedOffset + patternLength));
+				decodedOffset += patternLength;
+				state = matchEndState;
+				tokenStart = matchTokenStart;
+				continue;
+			}
+			long next = mnemonifier.nextCodepoint(text, state, end, endOfInput, false);
+			if (next == Mnemonifier.TOKEN_INCOMPLETE)
+				return;
+			decodedOffset += Character.charCount((int) next);
+			state = (int) (next >>> 32);
+		}
+	}
+
+	/**
+	 * Find the next offset where a match may start. All characters before
+	 * are decoded to themselves.
+	 */
+	private int findCandidate(CharSequence text, int start, int end) {
+		if (text instanceof String) {
+			String string = (String) text;
+			if (nextBracket < start)
+				nextBracket = indexOf(string, '[', start, end);
+			if (nextFirst < start)
+				nextFirst = indexOf(string, firstChar, start, end);
+			return Math.min(nextBracket, nextFirst);
+		}
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			if (c == '[' || c == firstChar)
+				return i;
+		}
+		return end;
+	}
+
+	private static int indexOf(String string, char c, int start, int end) {
+		int result = string.indexOf(c, start);
+		return result == -1 || result > end ? end : result;
+	}
+
+	/**
+	 * Test whether the pattern matches at the current state. If it does, the
+	 * state after the match is stored in {@link #matchEndState}, and the
+	 * offset of the token that contains it in {@link #matchTokenStart}.
+	 */
+	private int match(CharSequence text, int end, boolean endOfInput) {
+		int pos = state;
+		matchTokenStart = tokenStart;
+		for (int codepoint : pattern) {
+			if (pos == end)
+				return endOfInput ? NO_MATCH : INCOMPLETE;
+			long next = mnemonifier.nextCodepoint(text, pos, end, endOfInput, false);
+			if (next == Mnemonifier.TOKEN_INCOMPLETE)
+				return INCOMPLETE;
+			if ((int) next != codepoint)
+				return NO_MATCH;
+			if (pos >= 0)
+				matchTokenStart = pos;
+			pos = (int) (next >>> 32);
+		}
+		matchEndState = pos;
+		return MATCH;
+	}
+}
@@ -2,10 +2,11 @@ package net.sf.mnemonifier;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Reader;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CoderResult;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -39,36 +40,104 @@ import java.util.Map;
  */
 public class Mnemonifier {
 
-	private static String[][] forwardMap = null;
-	private static Map<String, Character> reverseMap = null;
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	/** Result of {@link #decodeToken}: token may be completed by further input. */
+	static final long TOKEN_INCOMPLETE = -1;
+
+	/** Result of {@link #decodeToken}: no valid token. */
+	static final long TOKEN_INVALID = -2;
+
+	/** Result of {@link #decodeToken}: codepoint out of range. */
+	static final long TOKEN_OUT_OF_RANGE = -3;
+
+	/** Flag in the codepoint part of a {@link #decodeToken} result: token is a group. */
+	static final int TOKEN_GROUP = 1 << 30;
+
+	private final MnemonicTable table;
+	private final boolean compact;
+	private final MnemonifierMetrics metrics;
 
 	/**
-	 * Class constructor.
+	 * Class constructor that uses the {@linkplain MnemonicTable#getDefault()
+	 * default mnemonic table}.
 	 */
 	public Mnemonifier() {
-		synchronized (Mnemonifier.class) {
-			if (forwardMap == null) {
-				loadMaps(Mnemonifier.class.getResourceAsStream("mnemonics.dat"));
-			}
-		}
+		this(MnemonicTable.getDefault());
 	}
 
 	/**
-	 * Load mnemonics maps.
-	 * @param inputStream Input stream to read from
+	 * Create a mnemonifier that uses a custom mnemonic table.
+	 *
+	 * @param table
+	 *            mnemonic table to use for encoding and decoding
 	 */
-	static void loadMaps(InputStream inputStream) {
-		try {
-			forwardMap = new String[256][];
-			reverseMap = new HashMap<String, Character>();
-			Reader r = new InputStreamReader(inputStream, "UTF-8");
-			parseMnemonicsMap(r, forwardMap, reverseMap);
-			r.close();
-		} catch (IOException ex) {
-			forwardMap = null;
-			reverseMap = null;
-			throw new IllegalStateException("Unable to load mnemonics map", ex);
-		}
+	public Mnemonifier(MnemonicTable table) {
+		this(table, false);
+	}
+
+	/**
+	 * Create a mnemonifier that uses a custom mnemonic table and optionally
+	 * compact output.
+	 *
+	 * <p>
+	 * In compact output, runs of consecutive codepoints that have no mnemonic
+	 * are written as a single group of comma separated hex codes (for example
+	 * {@code [#4E2D,6587]} instead of {@code [#4E2D][#6587]}). Groups are
+	 * always accepted when decoding.
+	 *
+	 * @param table
+	 *            mnemonic table to use for encoding and decoding
+	 * @param compact
+	 *            whether to use compact output
+	 */
+	public Mnemonifier(MnemonicTable table, boolean compact) {
+		this(table, compact, null);
+	}
+
+	/**
+	 * Create a mnemonifier that uses a custom mnemonic table, optionally
+	 * compact output, and optionally records metrics.
+	 *
+	 * @param table
+	 *            mnemonic table to use for encoding and decoding
+	 * @param compact
+	 *            whether to use compact output
+	 * @param metrics
+	 *            metrics to record, or {@code null}
+	 * @see #Mnemonifier(MnemonicTable, boolean)
+	 */
+	public Mnemonifier(MnemonicTable table, boolean compact, MnemonifierMetrics metrics) {
+		this.table = table;
+		this.compact = compact;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Return the mnemonic table used by this mnemonifier.
+	 *
+	 * @return the mnemonic table
+	 */
+	public MnemonicTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Return whether this mnemonifier uses compact output.
+	 *
+	 * @return whether compact output is used
+	 */
+	public boolean isCompact() {
+		return compact;
+	}
+
+	/**
+	 * Return the metrics recorded by this mnemonifier.
+	 *
+	 * @return the metrics, or {@code null} if no metrics are recorded
+	 */
+	public MnemonifierMetrics getMetrics() {
+		return metrics;
 	}
 
 	/**
@@ -79,69 +148,374 @@ public class Mnemonifier {
 	 * @return mnemonified string
 	 */
 	public String mnemonify(String input) {
-		int mode = 0;
-		for (int i = 0; i < input.length(); i++) {
+		if (metrics == null)
+			return mnemonifyString(input);
+		Object event = metrics.begin(input.length());
+		String result = mnemonifyString(input);
+		metrics.encoded("mnemonify", input.length(), result.length(), event);
+		return result;
+	}
+
+	private String mnemonifyString(String input) {
+		int plainEnd = AsciiScanner.skipPlain(input, 0, input.length());
+		if (plainEnd == input.length())
+			return input;
+		StringBuilder sb = new StringBuilder(input.length() + 16);
+		sb.append(input, 0, plainEnd);
+		mnemonify(input, plainEnd, input.length(), sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Convert many strings into mnemonics at once, storing all results in a
+	 * single char array. The array is sized using
+	 * {@link #mnemonifiedLength(CharSequence)} first, so that the results
+	 * are encoded into it directly.
+	 *
+	 * @param inputs
+	 *            original texts
+	 * @return mnemonified forms of all inputs
+	 * @throws IllegalArgumentException
+	 *             if the results do not fit into a single char array
+	 * @see ParallelMnemonifier#mnemonifyBatch(List)
+	 */
+	public MnemonifiedBatch mnemonifyBatch(List<? extends CharSequence> inputs) {
+		int size = inputs.size();
+		long length = 0;
+		for (int i = 0; i < size; i++) {
+			length += mnemonifiedLength(inputs.get(i));
+		}
+		if (length > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Mnemonified batch too long: " + length);
+		char[] data = new char[(int) length];
+		int[] offsets = new int[size + 1];
+		CharBuffer out = CharBuffer.wrap(data);
+		for (int i = 0; i < size; i++) {
+			CharSequence input = inputs.get(i);
+			int inputLength = input.length();
+			if (input instanceof String && AsciiScanner.skipPlain(input, 0, inputLength) == inputLength) {
+				((String) input).getChars(0, inputLength, data, out.position());
+				out.position(out.position() + inputLength);
+			} else {
+				mnemonify(CharBuffer.wrap(input), out, true);
+			}
+			offsets[i + 1] = out.position();
+		}
+		return new MnemonifiedBatch(data, offsets);
+	}
+
+	/**
+	 * Append the mnemonified form of a part of a character sequence to an
+	 * appendable, without building an intermediate string. A surrogate pair
+	 * that is split by {@code end} is encoded as two lone surrogates.
+	 *
+	 * @param input
+	 *            original text
+	 * @param start
+	 *            offset of the first character to encode
+	 * @param end
+	 *            offset after the last character to encode
+	 * @param out
+	 *            appendable to append to
+	 * @throws IOException
+	 *             if appending fails
+	 */
+	public void mnemonify(CharSequence input, int start, int end, Appendable out) throws IOException {
+		if (out instanceof StringBuilder) {
+			mnemonify(input, start, end, (StringBuilder) out);
+			return;
+		}
+		StringBuilder token = null;
+		boolean groupOpen = false;
+		MnemonifierMetrics.CodepointCounts counts = newCodepointCounts();
+		for (int i = start; i < end;) {
+			int plainEnd = AsciiScanner.skipPlain(input, i, end);
+			if (plainEnd > i) {
+				if (groupOpen)
+					out.append(']');
+				groupOpen = false;
+				out.append(input, i, plainEnd);
+				i = plainEnd;
+				if (i == end)
+					break;
+			}
 			char c = input.charAt(i);
-			if (Character.isSurrogate(c)) {
-				mode = 2;
-				break;
-			} else if (c == '[' || c == ']' || c > 127) {
-				mode = 1;
+			int codepoint = c;
+			if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(input.charAt(i + 1)))
+				codepoint = Character.toCodePoint(c, input.charAt(i + 1));
+			if (token == null)
+				token = new StringBuilder();
+			token.setLength(0);
+			groupOpen = appendMnemonifiedCodepoint(token, codepoint, groupOpen, counts);
+			out.append(token);
+			i += Character.charCount(codepoint);
+		}
+		recordCodepointCounts(counts);
+		if (groupOpen)
+			out.append(']');
+	}
+
+	/**
+	 * Append the mnemonified form of a part of a character sequence. A
+	 * surrogate pair that is split by {@code end} is encoded as two lone
+	 * surrogates.
+	 *
+	 * @param input
+	 *            original text
+	 * @param start
+	 *            offset of the first character to encode
+	 * @param end
+	 *            offset after the last character to encode
+	 * @param sb
+	 *            string builder to append to
+	 * @return whether the mnemonified form differs from the original
+	 */
+	boolean mnemonify(CharSequence input, int start, int end, StringBuilder sb) {
+		boolean changed = false, groupOpen = false;
+		MnemonifierMetrics.CodepointCounts counts = newCodepointCounts();
+		for (int i = start; i < end;) {
+			int plainEnd = AsciiScanner.skipPlain(input, i, end);
+			if (plainEnd > i) {
+				if (groupOpen)
+					sb.append(']');
+				groupOpen = false;
+				sb.append(input, i, plainEnd);
+				i = plainEnd;
+				if (i == end)
+					break;
 			}
+			char c = input.charAt(i);
+			int codepoint = c;
+			if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(input.charAt(i + 1)))
+				codepoint = Character.toCodePoint(c, input.charAt(i + 1));
+			groupOpen = appendMnemonifiedCodepoint(sb, codepoint, groupOpen, counts);
+			changed = true;
+			i += Character.charCount(codepoint);
 		}
-		if (mode == 0)
-			return input;
-		if (mode == 1)
-			return mnemonifyBMP(input);
-		return mnemonifySurrogates(input);
+		recordCodepointCounts(counts);
+		if (groupOpen)
+			sb.append(']');
+		return changed;
 	}
 
-	private String mnemonifySurrogates(String input) {
-		StringBuilder sb = new StringBuilder();
-		for (int i = 0; i < input.length();) {
-			final int codepoint = input.codePointAt(i);
-			if (codepoint > Character.MAX_VALUE || !appendMnemonifiedChar(sb, (char) codepoint)) {
-				sb.append("[#" + Integer.toHexString(codepoint).toUpperCase());
+	/**
+	 * Compute the length of the mnemonified form of a string, without
+	 * building it. As mnemonified strings are ASCII-only, this is also the
+	 * length of their UTF-8 encoding.
+	 *
+	 * @param input
+	 *            original text
+	 * @return exact length of {@code mnemonify(input.toString())}
+	 */
+	public long mnemonifiedLength(CharSequence input) {
+		long length = 0;
+		boolean groupOpen = false;
+		int end = input.length();
+		for (int i = 0; i < end;) {
+			int plainEnd = AsciiScanner.skipPlain(input, i, end);
+			if (plainEnd > i) {
+				if (groupOpen)
+					length++;
+				groupOpen = false;
+				length += plainEnd - i;
+				i = plainEnd;
+				if (i == end)
+					break;
+			}
+			int codepoint = Character.codePointAt(input, i);
+			int mnemonicLength = codepoint <= Character.MAX_VALUE ? mnemonicLength((char) codepoint) : 0;
+			if (mnemonicLength != 0) {
+				if (groupOpen)
+					length++;
+				groupOpen = false;
+				length += mnemonicLength;
+			} else {
+				length += (groupOpen ? 1 : 2) + hexLength(codepoint);
 				String info = getCodepointInfo(codepoint);
 				if (info != null)
-					sb.append("{" + info + "}");
-				sb.append("]");
+					length += info.length() + 2;
+				if (!compact)
+					length++;
+				groupOpen = compact;
 			}
 			i += Character.charCount(codepoint);
 		}
-		return sb.toString();
+		if (groupOpen)
+			length++;
+		return length;
 	}
 
-	private String mnemonifyBMP(String input) {
-		StringBuilder sb = new StringBuilder();
-		for (int i = 0; i < input.length(); i++) {
-			final char c = input.charAt(i);
-			if (!appendMnemonifiedChar(sb, c)) {
-				sb.append("[#" + Integer.toHexString(c).toUpperCase());
-				String info = getCodepointInfo(c);
-				if (info != null)
-					sb.append("{" + info + "}");
-				sb.append("]");
+	/**
+	 * Append the mnemonified form of as much of a part of a character
+	 * sequence as fits into a maximum length. Encoding stops in front of the
+	 * first token that does not fit, so the output never ends with a partial
+	 * token, and the time needed depends on {@code maxLength} instead of the
+	 * length of the input.
+	 *
+	 * @param input
+	 *            original text
+	 * @param start
+	 *            offset of the first character to encode
+	 * @param end
+	 *            offset after the last character to encode
+	 * @param maxLength
+	 *            maximum number of characters to append
+	 * @param sb
+	 *            string builder to append to
+	 * @return offset after the last character that has been encoded, which
+	 *         is {@code end} if the input has been encoded completely
+	 */
+	public int mnemonify(CharSequence input, int start, int end, int maxLength, StringBuilder sb) {
+		int limit = sb.length() + maxLength;
+		boolean groupOpen = false;
+		MnemonifierMetrics.CodepointCounts counts = newCodepointCounts();
+		int i = start;
+		while (i < end) {
+			int plainEnd = AsciiScanner.skipPlain(input, i, end);
+			if (plainEnd > i) {
+				if (groupOpen)
+					sb.append(']');
+				groupOpen = false;
+				plainEnd = Math.min(plainEnd, i + limit - sb.length());
+				sb.append(input, i, plainEnd);
+				i = plainEnd;
+				if (i == end || sb.length() == limit)
+					break;
+			}
+			char c = input.charAt(i);
+			int codepoint = c;
+			if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(input.charAt(i + 1)))
+				codepoint = Character.toCodePoint(c, input.charAt(i + 1));
+			int length = sb.length();
+			boolean nextGroupOpen = appendMnemonifiedCodepoint(sb, codepoint, groupOpen, counts);
+			// keep room for closing an open group
+			if (sb.length() + (nextGroupOpen ? 1 : 0) > limit) {
+				sb.setLength(length);
+				break;
 			}
+			groupOpen = nextGroupOpen;
+			i += Character.charCount(codepoint);
 		}
-		return sb.toString();
+		recordCodepointCounts(counts);
+		if (groupOpen)
+			sb.append(']');
+		return i;
+	}
+
+	/**
+	 * Append the mnemonified form of a single codepoint, which may continue a
+	 * group of hex codes in compact output.
+	 *
+	 * @param sb
+	 *            string builder to append to
+	 * @param codepoint
+	 *            codepoint to encode
+	 * @param groupOpen
+	 *            whether a group has been started and not been closed yet
+	 * @param counts
+	 *            counts to update, or {@code null} if no metrics are recorded
+	 * @return whether a group has been started and not been closed yet
+	 *         after appending the codepoint; the caller has to append
+	 *         {@code ']'} at the end of the output if it is
+	 */
+	boolean appendMnemonifiedCodepoint(StringBuilder sb, int codepoint, boolean groupOpen, MnemonifierMetrics.CodepointCounts counts) {
+		int length = sb.length();
+		if (groupOpen)
+			sb.append(']');
+		if (codepoint <= Character.MAX_VALUE && appendMnemonifiedChar(sb, (char) codepoint, counts))
+			return false;
+		sb.setLength(length);
+		sb.append(groupOpen ? "," : "[#");
+		appendHex(sb, codepoint);
+		String info = getCodepointInfo(codepoint);
+		if (info != null)
+			sb.append('{').append(info).append('}');
+		if (counts != null) {
+			counts.hexCodes++;
+			if (info != null)
+				counts.codepointInfos++;
+		}
+		if (compact)
+			return true;
+		sb.append(']');
+		return false;
+	}
+
+	/**
+	 * Check whether a codepoint is encoded as hex code, and can therefore be
+	 * part of a group in compact output.
+	 *
+	 * @param codepoint
+	 *            codepoint to check
+	 * @return whether the codepoint is encoded as hex code
+	 */
+	boolean isEncodedAsHex(int codepoint) {
+		return codepoint > Character.MAX_VALUE || (codepoint >= 128 && !table.forwardTable().contains((char) codepoint));
+	}
+
+	private static void appendHex(StringBuilder sb, int codepoint) {
+		for (int shift = (hexLength(codepoint) - 1) * 4; shift >= 0; shift -= 4) {
+			sb.append(HEX_DIGITS[(codepoint >>> shift) & 0xF]);
+		}
+	}
+
+	private static int hexLength(int codepoint) {
+		return Math.max(1, 8 - Integer.numberOfLeadingZeros(codepoint) / 4);
 	}
 
-	private boolean appendMnemonifiedChar(StringBuilder sb, char c) {
+	/**
+	 * Return the length of the bracketed mnemonic of a character, or 0 if it
+	 * has to be encoded as hex code.
+	 */
+	private int mnemonicLength(char c) {
+		if (c == '[' || c == ']')
+			return 3;
+		if (c < 128)
+			return 1;
+		return table.forwardTable().length(c);
+	}
+
+	private boolean appendMnemonifiedChar(StringBuilder sb, char c, MnemonifierMetrics.CodepointCounts counts) {
 		if (c == '[') {
 			sb.append("[[]");
 		} else if (c == ']') {
 			sb.append("[]]");
 		} else if (c < 128) {
 			sb.append(c);
-		} else if (forwardMap[c / 256] != null && forwardMap[c / 256][c % 256] != null) {
-			sb.append("[" + forwardMap[c / 256][c % 256] + "]");
+			return true;
 		} else {
-			return false;
+			if (!table.forwardTable().append(sb, c))
+				return false;
+			if (counts != null)
+				counts.mnemonics++;
+			return true;
 		}
+		if (counts != null)
+			counts.escapes++;
 		return true;
 	}
 
+	/**
+	 * Create counts for a single call that encodes codepoints.
+	 *
+	 * @return new counts, or {@code null} if no metrics are recorded
+	 */
+	MnemonifierMetrics.CodepointCounts newCodepointCounts() {
+		return metrics == null ? null : new MnemonifierMetrics.CodepointCounts();
+	}
+
+	/**
+	 * Add counts to the metrics and reset them, at the end of a call that
+	 * encodes codepoints.
+	 *
+	 * @param counts
+	 *            counts returned by {@link #newCodepointCounts()}
+	 */
+	void recordCodepointCounts(MnemonifierMetrics.CodepointCounts counts) {
+		if (counts != null)
+			metrics.add(counts);
+	}
+
 	/**
 	 * Convert mnemonified string back to original. This override uses lax
 	 * decoding rules.
@@ -166,77 +540,796 @@ public class Mnemonifier {
 	 *             if strict decoding rules are used and the input is invalid
 	 */
 	public String unmnemonify(String input, boolean strict) {
-		if (strict && input.contains("]") && !input.contains("[")) {
-			throw new IllegalArgumentException(input);
+		if (metrics == null)
+			return unmnemonifyString(input, strict);
+		Object event = metrics.begin(input.length());
+		String result;
+		try {
+			result = unmnemonifyString(input, strict);
+		} catch (IllegalArgumentException ex) {
+			metrics.decodeFailed("unmnemonify", input.length(), event);
+			throw ex;
 		}
-		if (!input.contains("["))
-			return input;
-		StringBuilder sb = new StringBuilder();
-		int parsedOffset = 0;
-		int offset = input.indexOf('[');
-		while (offset != -1) {
-			String literalPart = input.substring(parsedOffset, offset);
-			if (strict && literalPart.contains("]"))
+		metrics.decoded("unmnemonify", input.length(), result.length(), event);
+		return result;
+	}
+
+	/**
+	 * Convert mnemonified string back to original, using strict decoding
+	 * rules. Unlike {@link #unmnemonify(String, boolean)}, invalid input does
+	 * not throw an exception, but is reported with the offset of the first
+	 * error.
+	 *
+	 * @param input
+	 *            mnemonified string
+	 * @return original string, or offset of the first error
+	 */
+	public UnmnemonifyResult tryUnmnemonify(String input) {
+		Object event = metrics == null ? null : metrics.begin(input.length());
+		UnmnemonifyResult result;
+		if (input.indexOf('[') == -1) {
+			int errorOffset = input.indexOf(']');
+			result = errorOffset == -1 ? new UnmnemonifyResult(input, -1) : new UnmnemonifyResult(null, errorOffset);
+		} else {
+			StringBuilder sb = new StringBuilder(input.length());
+			int offset = unmnemonify(input, 0, input.length(), input.length(), true, true, sb);
+			result = offset < 0 ? new UnmnemonifyResult(null, -1 - offset) : new UnmnemonifyResult(sb.toString(), -1);
+		}
+		if (metrics != null) {
+			if (result.isValid())
+				metrics.decoded("tryUnmnemonify", input.length(), result.getValue().length(), event);
+			else
+				metrics.decodeFailed("tryUnmnemonify", input.length(), event);
+		}
+		return result;
+	}
+
+	/**
+	 * Check whether a mnemonified string is valid according to strict decoding
+	 * rules, without decoding it.
+	 *
+	 * @param input
+	 *            mnemonified string
+	 * @return offset of the first error, or {@code -1} if the input is valid
+	 */
+	public int validate(CharSequence input) {
+		int offset = unmnemonify(input, 0, input.length(), input.length(), true, true, null);
+		return offset < 0 ? -1 - offset : -1;
+	}
+
+	/**
+	 * Return a view of the original text of a mnemonified text, which is
+	 * decoded on demand.
+	 *
+	 * @param input
+	 *            mnemonified text
+	 * @param strict
+	 *            whether to use strict decoding rules
+	 * @return lazily decoded original text
+	 */
+	public UnmnemonifiedSequence unmnemonifyLazily(CharSequence input, boolean strict) {
+		return new UnmnemonifiedSequence(this, input, strict);
+	}
+
+	private String unmnemonifyString(String input, boolean strict) {
+		if (input.indexOf('[') == -1) {
+			if (strict && input.indexOf(']') != -1)
 				throw new IllegalArgumentException(input);
-			sb.append(literalPart);
-			parsedOffset = offset;
-			boolean parsed = false;
-			if (offset + 2 < input.length() && input.charAt(offset + 1) == '#') {
-				int hexEnd = offset + 2;
-				char c = input.charAt(hexEnd);
-				while ("0123456789ABCDEFabcdef".indexOf(c) != -1) {
+			return input;
+		}
+		StringBuilder sb = new StringBuilder(input.length());
+		if (unmnemonify(input, 0, input.length(), input.length(), true, strict, sb) < 0)
+			throw new IllegalArgumentException(input);
+		return sb.toString();
+	}
+
+	/**
+	 * Append the original form of a part of a mnemonified character sequence
+	 * to an appendable. If the appendable is a {@link StringBuilder}, no
+	 * intermediate string is built.
+	 *
+	 * @param input
+	 *            mnemonified text
+	 * @param start
+	 *            offset of the first character to decode
+	 * @param end
+	 *            offset after the last character to decode
+	 * @param strict
+	 *            whether to use strict decoding rules
+	 * @param out
+	 *            appendable to append to; it is left unchanged if the input
+	 *            is invalid
+	 * @throws IOException
+	 *             if appending fails
+	 * @throws IllegalArgumentException
+	 *             if strict decoding rules are used and the input is invalid
+	 */
+	public void unmnemonify(CharSequence input, int start, int end, boolean strict, Appendable out) throws IOException {
+		StringBuilder sb = out instanceof StringBuilder ? (StringBuilder) out : new StringBuilder(end - start);
+		int length = sb.length();
+		int result = unmnemonify(input, start, end, end, true, strict, sb);
+		if (result < 0) {
+			sb.setLength(length);
+			throw new IllegalArgumentException("Invalid input at offset " + (-1 - result));
+		}
+		if (sb != out)
+			out.append(sb);
+	}
+
+	/**
+	 * Convert a part of a mnemonified string back to original. If the end of
+	 * the input has not been reached yet, decoding stops in front of a token
+	 * that may be completed by further input.
+	 *
+	 * @param input
+	 *            mnemonified input
+	 * @param start
+	 *            offset of the first character to decode
+	 * @param limit
+	 *            offset where decoding stops; a token that starts before this
+	 *            offset is decoded completely, even if it extends beyond
+	 * @param end
+	 *            offset after the last character available
+	 * @param endOfInput
+	 *            whether no more input follows after {@code end}
+	 * @param strict
+	 *            whether to use strict decoding rules
+	 * @param sb
+	 *            string builder to append decoded characters to, or
+	 *            {@code null} to only check the input
+	 * @return offset up to which the input has been decoded, or
+	 *         {@code -1 - offset} if the input is invalid at {@code offset}
+	 *         (in which case the content of {@code sb} is undefined)
+	 */
+	int unmnemonify(CharSequence input, int start, int limit, int end, boolean endOfInput, boolean strict, StringBuilder sb) {
+		int parsedOffset = start;
+		int offset = start;
+		while (offset < limit) {
+			offset = AsciiScanner.findBracket(input, offset, limit, strict);
+			if (offset == limit)
+				break;
+			if (input.charAt(offset) == ']')
+				return -1 - offset;
+			long token = decodeToken(input, offset, end, endOfInput, strict);
+			if (token == TOKEN_INCOMPLETE)
+				break;
+			if (token == TOKEN_INVALID && !strict) {
+				offset++;
+				continue;
+			}
+			if (token < 0)
+				return -1 - offset;
+			if (sb != null) {
+				sb.append(input, parsedOffset, offset);
+				appendToken(input, offset, token, sb);
+			}
+			parsedOffset = offset = offset + (int) (token >>> 32);
+		}
+		if (sb != null)
+			sb.append(input, parsedOffset, offset);
+		return offset;
+	}
+
+	/**
+	 * Decode a single token.
+	 *
+	 * @param input
+	 *            mnemonified input
+	 * @param offset
+	 *            offset of the opening square bracket of the token
+	 * @param end
+	 *            offset after the last character available
+	 * @param endOfInput
+	 *            whether no more input follows after {@code end}
+	 * @param strict
+	 *            whether to use strict decoding rules
+	 * @return length of the token in the upper 32 bits and the decoded
+	 *         codepoint in the lower 32 bits, or {@link #TOKEN_INCOMPLETE} if
+	 *         the token may be completed by further input,
+	 *         {@link #TOKEN_INVALID} if there is no valid token at this
+	 *         offset, or {@link #TOKEN_OUT_OF_RANGE} if the token represents
+	 *         a codepoint larger than {@link Character#MAX_CODE_POINT}
+	 */
+	long decodeToken(CharSequence input, int offset, int end, boolean endOfInput, boolean strict) {
+		if (offset + 2 >= end && !endOfInput)
+			return TOKEN_INCOMPLETE;
+		if (offset + 2 < end && input.charAt(offset + 1) == '#') {
+			int hexStart = offset + 2, firstCodepoint = -1;
+			boolean outOfRange = false, invalidHex = false;
+			while (true) {
+				int hexEnd = hexStart, codepoint = 0, tagEnd = -1, nextStart = -1;
+				int digit = hexValue(input.charAt(hexEnd));
+				while (digit != -1) {
+					codepoint = Math.min(codepoint * 16 + digit, Character.MAX_CODE_POINT + 1);
 					hexEnd++;
-					if (hexEnd >= input.length())
+					if (hexEnd >= end)
 						break;
-					c = input.charAt(hexEnd);
+					digit = hexValue(input.charAt(hexEnd));
 				}
-				int tagEnd = -1;
-				if (c == ']') {
+				if (hexEnd >= end) {
+					if (!endOfInput)
+						return TOKEN_INCOMPLETE;
+				} else if (input.charAt(hexEnd) == ']') {
 					tagEnd = hexEnd + 1;
-				} else if (c == '{') {
-					int pos = input.indexOf('}', hexEnd + 1);
-					if (input.startsWith("}]", pos))
+				} else if (input.charAt(hexEnd) == ',') {
+					nextStart = hexEnd + 1;
+				} else if (input.charAt(hexEnd) == '{') {
+					int pos = hexEnd + 1;
+					while (pos < end && input.charAt(pos) != '}')
+						pos++;
+					if (pos + 1 >= end && !endOfInput)
+						return TOKEN_INCOMPLETE;
+					if (pos + 1 < end && input.charAt(pos + 1) == ']')
 						tagEnd = pos + 2;
+					else if (pos + 1 < end && input.charAt(pos + 1) == ',')
+						nextStart = pos + 2;
 				}
-				if (hexEnd > offset + 2 && tagEnd != -1) {
-					parsed = true;
-					String codepointHex = input.substring(offset + 2, hexEnd);
-					int codepoint = Integer.parseInt(codepointHex, 16);
-					if (strict && !codepointHex.equals(Integer.toHexString(codepoint).toUpperCase())) {
-						throw new IllegalArgumentException(input);
-					}
-					sb.appendCodePoint(codepoint);
-					parsedOffset = tagEnd;
-				}
-			} else if (offset + 1 < input.length() && "[]".indexOf(input.charAt(offset + 1)) != -1) {
-				if (offset + 2 < input.length() && input.charAt(offset + 2) == ']') {
-					parsed = true;
-					sb.append(input.charAt(offset + 1));
-					parsedOffset = offset + 3;
+				if (hexEnd == hexStart || (tagEnd == -1 && nextStart == -1))
+					break;
+				outOfRange |= codepoint > Character.MAX_CODE_POINT;
+				invalidHex |= strict && ((input.charAt(hexStart) == '0' && hexEnd > hexStart + 1) || hasLowerCaseHex(input, hexStart, hexEnd));
+				if (firstCodepoint == -1)
+					firstCodepoint = codepoint;
+				if (tagEnd != -1) {
+					if (outOfRange)
+						return TOKEN_OUT_OF_RANGE;
+					if (invalidHex)
+						return TOKEN_INVALID;
+					return token(tagEnd - offset, hexStart == offset + 2 ? codepoint : firstCodepoint | TOKEN_GROUP);
 				}
+				if (nextStart >= end)
+					return endOfInput ? TOKEN_INVALID : TOKEN_INCOMPLETE;
+				hexStart = nextStart;
+			}
+		} else if (offset + 1 < end && (input.charAt(offset + 1) == '[' || input.charAt(offset + 1) == ']')) {
+			if (offset + 2 < end && input.charAt(offset + 2) == ']')
+				return token(3, input.charAt(offset + 1));
+		} else {
+			MnemonicTrie reverseTrie = table.reverseTrie();
+			int node = MnemonicTrie.ROOT;
+			int pos = offset + 1;
+			while (pos < end && node != -1 && input.charAt(pos) != ']') {
+				node = reverseTrie.next(node, input.charAt(pos));
+				pos++;
+			}
+			if (pos >= end && node != -1 && !endOfInput)
+				return TOKEN_INCOMPLETE;
+			if (pos < end && node != -1 && reverseTrie.value(node) != 0)
+				return token(pos + 1 - offset, reverseTrie.value(node));
+		}
+		return TOKEN_INVALID;
+	}
+
+	/**
+	 * Decode the next codepoint of a mnemonified text, to walk through the
+	 * original text without building it.
+	 *
+	 * @param input
+	 *            mnemonified input
+	 * @param state
+	 *            offset of the next character or token, or
+	 *            {@code -1 - offset} of the next hex code inside a group
+	 * @param strict
+	 *            whether to use strict decoding rules
+	 * @return state after the decoded codepoint in the upper 32 bits, and the
+	 *         codepoint in the lower 32 bits
+	 * @throws IllegalArgumentException
+	 *             if the input is invalid at this state
+	 */
+	long nextCodepoint(CharSequence input, int state, boolean strict) {
+		return nextCodepoint(input, state, input.length(), true, strict);
+	}
+
+	/**
+	 * Decode the next codepoint of a part of a mnemonified text, which may be
+	 * followed by more input.
+	 *
+	 * @param input
+	 *            mnemonified input
+	 * @param state
+	 *            offset of the next character or token (before {@code end}),
+	 *            or {@code -1 - offset} of the next hex code inside a group
+	 * @param end
+	 *            offset after the last character available
+	 * @param endOfInput
+	 *            whether no more input follows after {@code end}
+	 * @param strict
+	 *            whether to use strict decoding rules
+	 * @return state after the decoded codepoint in the upper 32 bits, and the
+	 *         codepoint in the lower 32 bits, or {@link #TOKEN_INCOMPLETE} if
+	 *         the codepoint may be completed by further input
+	 * @throws IllegalArgumentException
+	 *             if the input is invalid at this state
+	 */
+	long nextCodepoint(CharSequence input, int state, int end, boolean endOfInput, boolean strict) {
+		if (state < 0)
+			return nextGroupCodepoint(input, -1 - state);
+		char c = input.charAt(state);
+		int codepoint = c;
+		if (Character.isHighSurrogate(c)) {
+			if (state + 1 == end && !endOfInput)
+				return TOKEN_INCOMPLETE;
+			if (state + 1 < end && Character.isLowSurrogate(input.charAt(state + 1)))
+				codepoint = Character.toCodePoint(c, input.charAt(state + 1));
+		}
+		if (codepoint == ']' && strict)
+			throw new IllegalArgumentException("Invalid input at offset " + state);
+		if (codepoint != '[')
+			return cursor(state + Character.charCount(codepoint), codepoint);
+		long token = decodeToken(input, state, end, endOfInput, strict);
+		if (token == TOKEN_INCOMPLETE)
+			return TOKEN_INCOMPLETE;
+		if (token == TOKEN_INVALID && !strict)
+			return cursor(state + 1, '[');
+		if (token < 0)
+			throw new IllegalArgumentException("Invalid input at offset " + state);
+		if (((int) token & TOKEN_GROUP) != 0)
+			return nextGroupCodepoint(input, state + 2);
+		return cursor(state + (int) (token >>> 32), (int) token);
+	}
+
+	private static long nextGroupCodepoint(CharSequence input, int pos) {
+		int codepoint = 0, digit;
+		while ((digit = hexValue(input.charAt(pos))) != -1) {
+			codepoint = codepoint * 16 + digit;
+			pos++;
+		}
+		if (input.charAt(pos) == '{') {
+			while (input.charAt(pos) != '}')
+				pos++;
+			pos++;
+		}
+		return cursor(input.charAt(pos) == ']' ? pos + 1 : -2 - pos, codepoint);
+	}
+
+	private static long cursor(int state, int codepoint) {
+		return ((long) state << 32) | codepoint;
+	}
+
+	/**
+	 * Append the codepoints of a decoded token.
+	 *
+	 * @param input
+	 *            mnemonified input
+	 * @param offset
+	 *            offset of the opening square bracket of the token
+	 * @param token
+	 *            result of {@link #decodeToken} for this token
+	 * @param sb
+	 *            string builder to append to
+	 */
+	static void appendToken(CharSequence input, int offset, long token, StringBuilder sb) {
+		if (((int) token & TOKEN_GROUP) == 0) {
+			sb.appendCodePoint((int) token);
+			return;
+		}
+		int pos = offset + 2;
+		while (true) {
+			int codepoint = 0, digit;
+			while ((digit = hexValue(input.charAt(pos))) != -1) {
+				codepoint = codepoint * 16 + digit;
+				pos++;
+			}
+			sb.appendCodePoint(codepoint);
+			if (input.charAt(pos) == '{') {
+				while (input.charAt(pos) != '}')
+					pos++;
+				pos++;
+			}
+			if (input.charAt(pos) == ']')
+				break;
+			pos++;
+		}
+	}
+
+	private static long token(int length, int codepoint) {
+		return ((long) length << 32) | codepoint;
+	}
+
+	private static int hexValue(char c) {
+		if (c >= '0' && c <= '9')
+			return c - '0';
+		if (c >= 'A' && c <= 'F')
+			return c - 'A' + 10;
+		if (c >= 'a' && c <= 'f')
+			return c - 'a' + 10;
+		return -1;
+	}
+
+	private static boolean hasLowerCaseHex(CharSequence input, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (input.charAt(i) >= 'a')
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Convert UTF-8 encoded Unicode text into mnemonics. The result is
+	 * ASCII-only and identical to the bytes of {@link #mnemonify(String)}.
+	 *
+	 * @param input
+	 *            UTF-8 encoded original text
+	 * @return mnemonified bytes, or {@code input} itself if no conversion was
+	 *         necessary
+	 * @throws IllegalArgumentException
+	 *             if the input is not valid UTF-8
+	 */
+	public byte[] mnemonifyUTF8(byte[] input) {
+		if (metrics == null)
+			return mnemonifyBytes(input);
+		Object event = metrics.begin(input.length);
+		byte[] result = mnemonifyBytes(input);
+		metrics.encoded("mnemonifyUTF8", input.length, result.length, event);
+		return result;
+	}
+
+	private byte[] mnemonifyBytes(byte[] input) {
+		ByteBuffer in = ByteBuffer.wrap(input);
+		if (AsciiScanner.skipPlain(in, 0, input.length) == input.length)
+			return input;
+		ByteBuffer out = ByteBuffer.allocate(input.length * 2 + 16);
+		CoderResult result;
+		while ((result = mnemonifyUTF8(in, out, true)).isOverflow()) {
+			if (compact) {
+				// start again, so that no group is split
+				in.position(0);
+				out = ByteBuffer.allocate(out.capacity() * 2);
 			} else {
-				int endOffset = input.indexOf(']', offset + 1);
-				if (endOffset != -1) {
-					Character decoded = reverseMap.get(input.substring(offset + 1, endOffset));
-					if (decoded != null) {
-						parsed = true;
-						sb.append((char) decoded);
-						parsedOffset = endOffset + 1;
+				out = grow(out);
+			}
+		}
+		if (result.isError())
+			throw new IllegalArgumentException("Malformed UTF-8 input at offset " + in.position());
+		return toByteArray(out);
+	}
+
+	/**
+	 * Convert mnemonified bytes back to UTF-8 encoded original text.
+	 *
+	 * @param input
+	 *            mnemonified bytes
+	 * @param strict
+	 *            whether to use strict decoding rules
+	 * @return UTF-8 encoded original text, or {@code input} itself if no
+	 *         conversion was necessary
+	 * @throws IllegalArgumentException
+	 *             if strict decoding rules are used and the input is invalid
+	 */
+	public byte[] unmnemonifyUTF8(byte[] input, boolean strict) {
+		if (metrics == null)
+			return unmnemonifyBytes(input, strict);
+		Object event = metrics.begin(input.length);
+		byte[] result;
+		try {
+			result = unmnemonifyBytes(input, strict);
+		} catch (IllegalArgumentException ex) {
+			metrics.decodeFailed("unmnemonifyUTF8", input.length, event);
+			throw ex;
+		}
+		metrics.decoded("unmnemonifyUTF8", input.length, result.length, event);
+		return result;
+	}
+
+	private byte[] unmnemonifyBytes(byte[] input, boolean strict) {
+		ByteBuffer in = ByteBuffer.wrap(input);
+		if (AsciiScanner.findBracket(in, 0, input.length, strict) == input.length)
+			return input;
+		ByteBuffer out = ByteBuffer.allocate(input.length);
+		CoderResult result;
+		while ((result = unmnemonifyUTF8(in, out, true, strict)).isOverflow()) {
+			out = grow(out);
+		}
+		if (result.isError())
+			throw new IllegalArgumentException("Invalid mnemonified input at offset " + in.position());
+		return toByteArray(out);
+	}
+
+	/**
+	 * Convert UTF-8 encoded Unicode text from a buffer into mnemonics.
+	 * Conversion stops when the input is exhausted, when the output buffer is
+	 * full, or when the input is malformed. The number of bytes consumed and
+	 * produced is reported by advancing the positions of both buffers; a
+	 * codepoint is either converted completely or not at all. In compact
+	 * output, a group is closed at the end of every call.
+	 *
+	 * @param in
+	 *            buffer containing UTF-8 encoded original text
+	 * @param out
+	 *            buffer to write mnemonified bytes to
+	 * @param endOfInput
+	 *            whether no more input follows after the input buffer's
+	 *            content; if {@code false}, an incomplete UTF-8 sequence at
+	 *            the end of the input is left in the input buffer
+	 * @return {@link CoderResult#UNDERFLOW} if all available input has been
+	 *         converted, {@link CoderResult#OVERFLOW} if the output buffer is
+	 *         full, or a malformed-input result if the input buffer is
+	 *         positioned at malformed UTF-8 input
+	 */
+	public CoderResult mnemonifyUTF8(ByteBuffer in, ByteBuffer out, boolean endOfInput) {
+		StringBuilder token = null;
+		boolean groupOpen = false;
+		MnemonifierMetrics.CodepointCounts counts = newCodepointCounts();
+		int pos = in.position(), end = in.limit();
+		try {
+			while (pos < end) {
+				int plainEnd = AsciiScanner.skipPlain(in, pos, end);
+				if (plainEnd > pos) {
+					if (groupOpen)
+						out.put((byte) ']');
+					groupOpen = false;
+					int count = Math.min(plainEnd - pos, out.remaining());
+					UTF8.copy(in, pos, pos + count, out);
+					pos += count;
+					if (pos < plainEnd)
+						return CoderResult.OVERFLOW;
+					if (pos == end)
+						break;
+				}
+				byte b = in.get(pos);
+				int codepoint = b, length = 1;
+				if (b < 0) {
+					long decoded = UTF8.decode(in, pos, end, endOfInput);
+					if (decoded == UTF8.INCOMPLETE)
+						break;
+					if (decoded < 0)
+						return CoderResult.malformedForLength((int) -decoded);
+					codepoint = (int) decoded;
+					length = (int) (decoded >>> 32);
+				}
+				if (token == null)
+					token = new StringBuilder();
+				token.setLength(0);
+				boolean nextGroupOpen = appendMnemonifiedCodepoint(token, codepoint, groupOpen, counts);
+				// keep room for closing an open group
+				if (out.remaining() < UTF8.length(token) + (nextGroupOpen ? 1 : 0))
+					return CoderResult.OVERFLOW;
+				UTF8.put(out, token);
+				groupOpen = nextGroupOpen;
+				pos += length;
+			}
+			return CoderResult.UNDERFLOW;
+		} finally {
+			if (groupOpen)
+				out.put((byte) ']');
+			in.position(pos);
+			recordCodepointCounts(counts);
+		}
+	}
+
+	/**
+	 * Convert mnemonified bytes from a buffer back to UTF-8 encoded original
+	 * text. Conversion stops when the input is exhausted, when the output
+	 * buffer is full, or when the input is invalid. The number of bytes
+	 * consumed and produced is reported by advancing the positions of both
+	 * buffers; a token is either converted completely or not at all.
+	 *
+	 * <p>
+	 * Bytes outside of tokens are copied unchanged, so that non-ASCII UTF-8
+	 * input is passed through when using lax decoding rules.
+	 *
+	 * @param in
+	 *            buffer containing mnemonified bytes
+	 * @param out
+	 *            buffer to write UTF-8 encoded original text to
+	 * @param endOfInput
+	 *            whether no more input follows after the input buffer's
+	 *            content; if {@code false}, a token that may be completed by
+	 *            further input is left in the input buffer
+	 * @param strict
+	 *            whether to use strict decoding rules
+	 * @return {@link CoderResult#UNDERFLOW} if all available input has been
+	 *         converted, {@link CoderResult#OVERFLOW} if the output buffer is
+	 *         full, or a malformed-input result if the input buffer is
+	 *         positioned at invalid input
+	 */
+	public CoderResult unmnemonifyUTF8(ByteBuffer in, ByteBuffer out, boolean endOfInput, boolean strict) {
+		ByteSequence input = new ByteSequence(in);
+		StringBuilder group = null;
+		int literalStart = in.position(), pos = literalStart, end = in.limit();
+		CoderResult result = CoderResult.UNDERFLOW;
+		while (pos < end) {
+			pos = AsciiScanner.findBracket(in, pos, end, strict);
+			if (pos == end)
+				break;
+			if (in.get(pos) == ']') {
+				result = CoderResult.malformedForLength(1);
+				break;
+			}
+			long token = decodeToken(input, pos, end, endOfInput, strict);
+			if (token == TOKEN_INCOMPLETE)
+				break;
+			if (token == TOKEN_INVALID && !strict) {
+				pos++;
+				continue;
+			}
+			if (token < 0) {
+				result = CoderResult.malformedForLength(1);
+				break;
+			}
+			int codepoint = (int) token;
+			if ((codepoint & TOKEN_GROUP) != 0) {
+				if (group == null)
+					group = new StringBuilder();
+				group.setLength(0);
+				appendToken(input, pos, token, group);
+			}
+			if (out.remaining() < pos - literalStart + ((codepoint & TOKEN_GROUP) != 0 ? UTF8.length(group) : UTF8.length(codepoint))) {
+				result = CoderResult.OVERFLOW;
+				break;
+			}
+			UTF8.copy(in, literalStart, pos, out);
+			if ((codepoint & TOKEN_GROUP) != 0)
+				UTF8.put(out, group);
+			else
+				UTF8.put(out, codepoint);
+			literalStart = pos = pos + (int) (token >>> 32);
+		}
+		if (out.remaining() < pos - literalStart) {
+			pos = literalStart + out.remaining();
+			result = CoderResult.OVERFLOW;
+		}
+		UTF8.copy(in, literalStart, pos, out);
+		in.position(pos);
+		return result;
+	}
+
+	/**
+	 * Convert Unicode text from a buffer into mnemonics. Conversion stops
+	 * when the input is exhausted or when the output buffer is full. The
+	 * number of characters consumed and produced is reported by advancing the
+	 * positions of both buffers; a codepoint is either converted completely
+	 * or not at all. In compact output, a group is closed at the end of every
+	 * call. Buffers (for example wrapping reusable char arrays) can be reused
+	 * across calls, so that no strings are built.
+	 *
+	 * @param in
+	 *            buffer containing original text
+	 * @param out
+	 *            buffer to write mnemonified text to; if it is too small,
+	 *            {@link #mnemonifiedLength(CharSequence)} of the input buffer
+	 *            returns the capacity needed for the remaining input
+	 * @param endOfInput
+	 *            whether no more input follows after the input buffer's
+	 *            content; if {@code false}, a high surrogate at the end of the
+	 *            input is left in the input buffer
+	 * @return {@link CoderResult#UNDERFLOW} if all available input has been
+	 *         converted, or {@link CoderResult#OVERFLOW} if the output buffer
+	 *         is full
+	 */
+	public CoderResult mnemonify(CharBuffer in, CharBuffer out, boolean endOfInput) {
+		StringBuilder token = null;
+		boolean groupOpen = false;
+		MnemonifierMetrics.CodepointCounts counts = newCodepointCounts();
+		int start = in.position(), pos = 0, end = in.remaining();
+		try {
+			while (pos < end) {
+				int plainEnd = AsciiScanner.skipPlain(in, pos, end);
+				if (plainEnd > pos) {
+					if (groupOpen)
+						out.put(']');
+					groupOpen = false;
+					int count = Math.min(plainEnd - pos, out.remaining());
+					for (int i = 0; i < count; i++) {
+						out.put(in.get(start + pos + i));
 					}
+					pos += count;
+					if (pos < plainEnd)
+						return CoderResult.OVERFLOW;
+					if (pos == end)
+						break;
 				}
+				char c = in.charAt(pos);
+				int codepoint = c;
+				if (Character.isHighSurrogate(c)) {
+					if (pos + 1 == end && !endOfInput)
+						break;
+					if (pos + 1 < end && Character.isLowSurrogate(in.charAt(pos + 1)))
+						codepoint = Character.toCodePoint(c, in.charAt(pos + 1));
+				}
+				if (token == null)
+					token = new StringBuilder();
+				token.setLength(0);
+				boolean nextGroupOpen = appendMnemonifiedCodepoint(token, codepoint, groupOpen, counts);
+				// keep room for closing an open group
+				if (out.remaining() < token.length() + (nextGroupOpen ? 1 : 0))
+					return CoderResult.OVERFLOW;
+				for (int i = 0; i < token.length(); i++) {
+					out.put(token.charAt(i));
+				}
+				groupOpen = nextGroupOpen;
+				pos += Character.charCount(codepoint);
 			}
-			if (!parsed) {
-				if (strict)
-					throw new IllegalArgumentException(input);
-				sb.append("[");
-				parsedOffset++;
+			return CoderResult.UNDERFLOW;
+		} finally {
+			if (groupOpen)
+				out.put(']');
+			in.position(start + pos);
+			recordCodepointCounts(counts);
+		}
+	}
+
+	/**
+	 * Convert mnemonified text from a buffer back to original. Conversion
+	 * stops when the input is exhausted, when the output buffer is full, or
+	 * when the input is invalid. The number of characters consumed and
+	 * produced is reported by advancing the positions of both buffers; a
+	 * token is either converted completely or not at all. As the original
+	 * text is never longer than the mnemonified text, an output buffer with
+	 * as much space remaining as the input buffer never overflows.
+	 *
+	 * @param in
+	 *            buffer containing mnemonified text
+	 * @param out
+	 *            buffer to write original text to
+	 * @param endOfInput
+	 *            whether no more input follows after the input buffer's
+	 *            content; if {@code false}, a token that may be completed by
+	 *            further input is left in the input buffer
+	 * @param strict
+	 *            whether to use strict decoding rules
+	 * @return {@link CoderResult#UNDERFLOW} if all available input has been
+	 *         converted, {@link CoderResult#OVERFLOW} if the output buffer is
+	 *         full, or a malformed-input result if the input buffer is
+	 *         positioned at invalid input
+	 */
+	public CoderResult unmnemonify(CharBuffer in, CharBuffer out, boolean endOfInput, boolean strict) {
+		StringBuilder token = null;
+		int start = in.position(), pos = 0, end = in.remaining();
+		try {
+			while (pos < end) {
+				int literalEnd = AsciiScanner.findBracket(in, pos, end, strict);
+				int count = Math.min(literalEnd - pos, out.remaining());
+				for (int i = 0; i < count; i++) {
+					out.put(in.get(start + pos + i));
+				}
+				pos += count;
+				if (pos < literalEnd)
+					return CoderResult.OVERFLOW;
+				if (pos == end)
+					break;
+				if (in.charAt(pos) == ']')
+					return CoderResult.malformedForLength(1);
+				long decoded = decodeToken(in, pos, end, endOfInput, strict);
+				if (decoded == TOKEN_INCOMPLETE)
+					break;
+				if (decoded == TOKEN_INVALID && !strict) {
+					if (!out.hasRemaining())
+						return CoderResult.OVERFLOW;
+					out.put('[');
+					pos++;
+					continue;
+				}
+				if (decoded < 0)
+					return CoderResult.malformedForLength(1);
+				if (token == null)
+					token = new StringBuilder();
+				token.setLength(0);
+				appendToken(in, pos, decoded, token);
+				if (out.remaining() < token.length())
+					return CoderResult.OVERFLOW;
+				for (int i = 0; i < token.length(); i++) {
+					out.put(token.charAt(i));
+				}
+				pos += (int) (decoded >>> 32);
 			}
-			offset = input.indexOf('[', parsedOffset);
+			return CoderResult.UNDERFLOW;
+		} finally {
+			in.position(start + pos);
 		}
-		String literalTail = input.substring(parsedOffset);
-		if (strict && literalTail.contains("]"))
-			throw new IllegalArgumentException(input);
-		return sb.append(literalTail).toString();
+	}
+
+	private static ByteBuffer grow(ByteBuffer buffer) {
+		ByteBuffer result = ByteBuffer.allocate(buffer.capacity() * 2 + 16);
+		buffer.flip();
+		result.put(buffer);
+		return result;
+	}
+
+	private static byte[] toByteArray(ByteBuffer buffer) {
+		byte[] result = new byte[buffer.position()];
+		System.arraycopy(buffer.array(), 0, result, 0, result.length);
+		return result;
 	}
 
 	/**
@@ -252,6 +1345,44 @@ public class Mnemonifier {
 		return null;
 	}
 
+	/**
+	 * Overridden by subclasses that override {@link #getCodepointInfo(int)}
+	 * to return the maximum length of the codepoint information, so that
+	 * encoders that need to know the maximum length of a token (like the
+	 * ones of {@link MnemonifiedCharset}) can be used. This implementation
+	 * returns 0 if {@link #getCodepointInfo(int)} is not overridden, or -1
+	 * (meaning that the length is not limited) otherwise.
+	 *
+	 * @return maximum length of the codepoint information, or -1
+	 */
+	protected int getMaxCodepointInfoLength() {
+		for (Class<?> c = getClass(); c != Mnemonifier.class; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod("getCodepointInfo", int.class);
+				return -1;
+			} catch (NoSuchMethodException ex) {
+				// not overridden in this class
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Return the maximum number of characters that are appended when
+	 * encoding a single character, including a group that is closed before
+	 * it.
+	 *
+	 * @return maximum length, or -1 if the length is not limited
+	 */
+	int getMaxTokenLength() {
+		int infoLength = getMaxCodepointInfoLength();
+		if (infoLength == -1)
+			return -1;
+		// "]" + "[#10FFFF" + "{" + info + "}" + "]"
+		int hexLength = 1 + 8 + (infoLength > 0 ? infoLength + 2 : 0) + 1;
+		return Math.max(1 + table.getMaxMnemonicLength() + 2, hexLength);
+	}
+
 	static void parseMnemonicsMap(Reader r, String[][] forwardMap, Map<String, Character> reverseMap) throws IOException {
 		BufferedReader br = new BufferedReader(r);
 		char current = 0;
@@ -0,0 +1,292 @@
+package net.sf.mnemonifier;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters that record what a {@link Mnemonifier} is doing, for capacity
+ * planning and for finding pathological inputs. Pass an instance to
+ * {@link Mnemonifier#Mnemonifier(MnemonicTable, boolean, MnemonifierMetrics)}
+ * to enable them; mnemonifiers without metrics do not pay for them. One
+ * instance may be shared by several mnemonifiers.
+ *
+ * <p>
+ * Conversions of whole strings and byte arrays are counted together with
+ * their input and output lengths, and their expansion ratio is recorded in a
+ * histogram. Individual codepoints are counted by every encoding method,
+ * including the streaming ones; codepoints that are encoded again after an
+ * output buffer overflowed are counted again. They are counted per call and
+ * added to the shared counters at the end of the call.
+ *
+ * <p>
+ * Conversions with an input of at least the event threshold are also
+ * recorded as {@code net.sf.mnemonifier.Conversion} events by Java Flight
+ * Recorder, if the mnemonifier-jfr module (which requires Java 11) is on the
+ * class path and the event is enabled.
+ *
+ * <p>
+ * Counters are updated using {@link LongAdder}, so that they scale when
+ * shared by many threads.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public final class MnemonifierMetrics {
+
+	/**
+	 * Lower bounds of the buckets of the expansion histogram, as output length
+	 * per input length in percent. The last bucket is unbounded.
+	 */
+	public static final int[] EXPANSION_BUCKETS = { 100, 101, 125, 150, 200, 300, 500 };
+
+	private static final ConversionRecorder RECORDER = createRecorder();
+
+	private final int eventThreshold;
+	private final LongAdder encodeCount = new LongAdder(), unchangedEncodeCount = new LongAdder();
+	private final LongAdder encodeInputLength = new LongAdder(), encodeOutputLength = new LongAdder();
+	private final LongAdder decodeCount = new LongAdder(), decodeFailureCount = new LongAdder();
+	private final LongAdder decodeInputLength = new LongAdder(), decodeOutputLength = new LongAdder();
+	private final LongAdder mnemonicCount = new LongAdder(), escapeCount = new LongAdder();
+	private final LongAdder hexCount = new LongAdder(), codepointInfoCount = new LongAdder();
+	private final LongAdder[] expansionHistogram = new LongAdder[EXPANSION_BUCKETS.length];
+
+	/**
+	 * Create new metrics that record Flight Recorder events for conversions
+	 * of at least 65536 characters or bytes.
+	 */
+	public MnemonifierMetrics() {
+		this(65536);
+	}
+
+	/**
+	 * Create new metrics.
+	 *
+	 * @param eventThreshold
+	 *            minimum input length of conversions that are recorded as
+	 *            Flight Recorder events
+	 */
+	public MnemonifierMetrics(int eventThreshold) {
+		this.eventThreshold = eventThreshold;
+		for (int i = 0; i < expansionHistogram.length; i++) {
+			expansionHistogram[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Return the number of encoded strings and byte arrays.
+	 *
+	 * @return number of encoded strings and byte arrays
+	 */
+	public long getEncodeCount() {
+		return encodeCount.sum();
+	}
+
+	/**
+	 * Return the number of encoded strings and byte arrays that did not need
+	 * any conversion (because they were plain ASCII without square brackets).
+	 *
+	 * @return number of unchanged strings and byte arrays
+	 */
+	public long getUnchangedEncodeCount() {
+		return unchangedEncodeCount.sum();
+	}
+
+	/**
+	 * Return the total input length of all encoded strings and byte arrays.
+	 *
+	 * @return total input length in chars or bytes
+	 */
+	public long getEncodeInputLength() {
+		return encodeInputLength.sum();
+	}
+
+	/**
+	 * Return the total output length of all encoded strings and byte arrays.
+	 *
+	 * @return total output length in chars or bytes
+	 */
+	public long getEncodeOutputLength() {
+		return encodeOutputLength.sum();
+	}
+
+	/**
+	 * Return the number of decoded strings and byte arrays, including failed
+	 * ones.
+	 *
+	 * @return number of decoded strings and byte arrays
+	 */
+	public long getDecodeCount() {
+		return decodeCount.sum();
+	}
+
+	/**
+	 * Return the number of strings and byte arrays that could not be decoded
+	 * using strict decoding rules.
+	 *
+	 * @return number of decoding failures
+	 */
+	public long getDecodeFailureCount() {
+		return decodeFailureCount.sum();
+	}
+
+	/**
+	 * Return the total input length of all decoded strings and byte arrays.
+	 *
+	 * @return total input length in chars or bytes
+	 */
+	public long getDecodeInputLength() {
+		return decodeInputLength.sum();
+	}
+
+	/**
+	 * Return the total output length of all successfully decoded strings and
+	 * byte arrays.
+	 *
+	 * @return total output length in chars or bytes
+	 */
+	public long getDecodeOutputLength() {
+		return decodeOutputLength.sum();
+	}
+
+	/**
+	 * Return the number of characters encoded as mnemonic from the table.
+	 *
+	 * @return number of mnemonics
+	 */
+	public long getMnemonicCount() {
+		return mnemonicCount.sum();
+	}
+
+	/**
+	 * Return the number of escaped square brackets.
+	 *
+	 * @return number of escaped square brackets
+	 */
+	public long getEscapeCount() {
+		return escapeCount.sum();
+	}
+
+	/**
+	 * Return the number of codepoints encoded as hex code. This is also the
+	 * number of calls to {@link Mnemonifier#getCodepointInfo(int)}.
+	 *
+	 * @return number of hex codes
+	 */
+	public long getHexCount() {
+		return hexCount.sum();
+	}
+
+	/**
+	 * Return the number of hex codes that got codepoint info.
+	 *
+	 * @return number of hex codes with codepoint info
+	 */
+	public long getCodepointInfoCount() {
+		return codepointInfoCount.sum();
+	}
+
+	/**
+	 * Return the expansion histogram of encoded strings and byte arrays.
+	 *
+	 * @return number of conversions per bucket of
+	 *         {@link #EXPANSION_BUCKETS}
+	 */
+	public long[] getExpansionHistogram() {
+		long[] result = new long[expansionHistogram.length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = expansionHistogram[i].sum();
+		}
+		return result;
+	}
+
+	/**
+	 * Reset all counters to zero. Conversions that run concurrently may be
+	 * counted partially.
+	 */
+	public void reset() {
+		for (LongAdder adder : new LongAdder[] { encodeCount, unchangedEncodeCount, encodeInputLength, encodeOutputLength, decodeCount, decodeFailureCount, decodeInputLength, decodeOutputLength, mnemonicCount, escapeCount, hexCount, codepointInfoCount }) {
+			adder.reset();
+		}
+		for (LongAdder adder : expansionHistogram) {
+			adder.reset();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "encoded " + getEncodeCount() + " (" + getUnchangedEncodeCount() + " unchanged, " + getEncodeInputLength() + " -> " + getEncodeOutputLength() + "), " +
+				"decoded " + getDecodeCount() + " (" + getDecodeFailureCount() + " failed, " + getDecodeInputLength() + " -> " + getDecodeOutputLength() + "), " +
+				getMnemonicCount() + " mnemonics, " + getEscapeCount() + " escapes, " + getHexCount() + " hex codes (" + getCodepointInfoCount() + " with info)";
+	}
+
+	/**
+	 * Start recording a conversion.
+	 *
+	 * @return Flight Recorder event to pass to the end method, or {@code null}
+	 */
+	Object begin(int inputLength) {
+		if (RECORDER == null || inputLength < eventThreshold)
+			return null;
+		return RECORDER.start();
+	}
+
+	void encoded(String operation, int inputLength, int outputLength, Object event) {
+		encodeCount.increment();
+		if (outputLength == inputLength)
+			unchangedEncodeCount.increment();
+		encodeInputLength.add(inputLength);
+		encodeOutputLength.add(outputLength);
+		long percent = inputLength == 0 ? 100 : outputLength * 100L / inputLength;
+		int bucket = EXPANSION_BUCKETS.length - 1;
+		while (bucket > 0 && percent < EXPANSION_BUCKETS[bucket])
+			bucket--;
+		expansionHistogram[bucket].increment();
+		if (event != null)
+			RECORDER.commit(event, operation, inputLength, outputLength);
+	}
+
+	void decoded(String operation, int inputLength, int outputLength, Object event) {
+		decodeCount.increment();
+		decodeInputLength.add(inputLength);
+		decodeOutputLength.add(outputLength);
+		if (event != null)
+			RECORDER.commit(event, operation, inputLength, outputLength);
+	}
+
+	void decodeFailed(String operation, int inputLength, Object event) {
+		decodeCount.increment();
+		decodeFailureCount.increment();
+		decodeInputLength.add(inputLength);
+		if (event != null)
+			RECORDER.commit(event, operation, inputLength, -1);
+	}
+
+	void add(CodepointCounts counts) {
+		if (counts.mnemonics != 0)
+			mnemonicCount.add(counts.mnemonics);
+		if (counts.escapes != 0)
+			escapeCount.add(counts.escapes);
+		if (counts.hexCodes != 0)
+			hexCount.add(counts.hexCodes);
+		if (counts.codepointInfos != 0)
+			codepointInfoCount.add(counts.codepointInfos);
+		counts.mnemonics = counts.escapes = counts.hexCodes = counts.codepointInfos = 0;
+	}
+
+	private static ConversionRecorder createRecorder() {
+		try {
+			return (ConversionRecorder) Class.forName("net.sf.mnemonifier.FlightRecorderConversionRecorder").getDeclaredConstructor().newInstance();
+		} catch (Exception ex) {
+			return null;
+		} catch (LinkageError ex) {
+			// compiled for a newer Java version, or Flight Recorder missing
+			return null;
+		}
+	}
+
+	/**
+	 * Codepoint counts of a single call, so that the shared counters are only
+	 * updated once per call instead of once per codepoint.
+	 */
+	static final class CodepointCounts {
+		int mnemonics, escapes, hexCodes, codepointInfos;
+	}
+}
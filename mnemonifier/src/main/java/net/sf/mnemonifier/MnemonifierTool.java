@@ -0,0 +1,379 @@
+package net.sf.mnemonifier;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CoderResult;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Command line tool to mnemonify or unmnemonify UTF-8 encoded files and whole
+ * directory trees.
+ *
+ * <p>
+ * Input files are memory-mapped and converted using the UTF-8 buffer methods
+ * of {@link Mnemonifier}, without decoding them into strings. Many files are
+ * converted concurrently, and large files are split into chunks that are
+ * converted in parallel and written in order as soon as they are done. When
+ * decoding, chunks are split before an opening square bracket (if there is
+ * one nearby); if a token still extends across a chunk boundary, the affected
+ * part is converted again, as in {@link ParallelMnemonifier}.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class MnemonifierTool {
+
+	private static final int BOUNDARY_SEARCH_LENGTH = 256;
+
+	private final Mnemonifier mnemonifier;
+	private final boolean decode, strict;
+	private final int chunkSize;
+	private final PrintStream out, err;
+	private final AtomicInteger fileCount = new AtomicInteger(), failureCount = new AtomicInteger();
+	private final AtomicLong inputBytes = new AtomicLong(), outputBytes = new AtomicLong();
+
+	/**
+	 * Main method for the command line tool.
+	 *
+	 * @param args
+	 *            Command line arguments, see usage message
+	 */
+	public static void main(String[] args) {
+		System.exit(run(args, System.out, System.err));
+	}
+
+	/**
+	 * Run the command line tool.
+	 *
+	 * @return exit code: 0 for success, 1 if any file could not be converted,
+	 *         2 for invalid arguments
+	 */
+	static int run(String[] args, PrintStream out, PrintStream err) {
+		boolean decode = false, strict = false, compact = false;
+		int chunkSize = 8 << 20, threads = Runtime.getRuntime().availableProcessors();
+		File output = null;
+		List<File> inputs = new ArrayList<File>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("-u")) {
+					decode = true;
+				} else if (args[i].equals("-s")) {
+					strict = true;
+				} else if (args[i].equals("-g")) {
+					compact = true;
+				} else if (args[i].equals("-o") && i + 1 < args.length) {
+					output = new File(args[++i]);
+				} else if (args[i].equals("-c") && i + 1 < args.length) {
+					chunkSize = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("-t") && i + 1 < args.length) {
+					threads = Integer.parseInt(args[++i]);
+				} else if (args[i].startsWith("-")) {
+					inputs.clear();
+					break;
+				} else {
+					inputs.add(new File(args[i]));
+				}
+			}
+		} catch (NumberFormatException ex) {
+			inputs.clear();
+		}
+		if (inputs.isEmpty() || output == null || chunkSize <= 0 || threads <= 0) {
+			err.println("Usage: java -jar mnemonifier.jar [-u] [-s] [-g] [-c <chunksize>] [-t <threads>] -o <output> <input>...");
+			err.println();
+			err.println("Mnemonify (or unmnemonify, when -u is given) UTF-8 encoded files. Inputs");
+			err.println("may be files or directories; they are written into the output directory.");
+			err.println("A single input file may also be written to an output file.");
+			err.println();
+			err.println("  -u  unmnemonify instead of mnemonify");
+			err.println("  -s  use strict decoding rules");
+			err.println("  -g  group runs of hex codes (compact output)");
+			err.println("  -c  chunk size in bytes for converting large files in parallel");
+			err.println("  -t  number of threads");
+			return 2;
+		}
+		List<File[]> jobs = new ArrayList<File[]>();
+		if (inputs.size() == 1 && inputs.get(0).isFile() && !output.isDirectory()) {
+			jobs.add(new File[] { inputs.get(0), output });
+		} else {
+			for (File input : inputs) {
+				addJobs(input, new File(output, input.getAbsoluteFile().getName()), jobs);
+			}
+		}
+		MnemonifierTool tool = new MnemonifierTool(new Mnemonifier(MnemonicTable.getDefault(), compact), decode, strict, chunkSize, out, err);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		long startTime = System.nanoTime();
+		try {
+			tool.transcodeAll(pool, jobs);
+		} finally {
+			pool.shutdown();
+		}
+		tool.report("Total (" + tool.fileCount.get() + " files)", tool.inputBytes.get(), tool.outputBytes.get(), System.nanoTime() - startTime);
+		return tool.failureCount.get() == 0 ? 0 : 1;
+	}
+
+	private static void addJobs(File input, File output, List<File[]> jobs) {
+		if (input.isDirectory()) {
+			File[] children = input.listFiles();
+			if (children == null)
+				return;
+			for (File child : children) {
+				addJobs(child, new File(output, child.getName()), jobs);
+			}
+		} else {
+			jobs.add(new File[] { input, output });
+		}
+	}
+
+	private MnemonifierTool(Mnemonifier mnemonifier, boolean decode, boolean strict, int chunkSize, PrintStream out, PrintStream err) {
+		this.mnemonifier = mnemonifier;
+		this.decode = decode;
+		this.strict = strict;
+		this.chunkSize = chunkSize;
+		this.out = out;
+		this.err = err;
+	}
+
+	private void transcodeAll(ForkJoinPool pool, final List<File[]> jobs) {
+		pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(jobs.size());
+				for (final File[] job : jobs) {
+					tasks.add(new RecursiveAction() {
+						@Override
+						protected void compute() {
+							long startTime = System.nanoTime();
+							try {
+								long[] sizes = transcode(job[0], job[1]);
+								inputBytes.addAndGet(sizes[0]);
+								outputBytes.addAndGet(sizes[1]);
+								fileCount.incrementAndGet();
+								report(job[0].getPath(), sizes[0], sizes[1], System.nanoTime() - startTime);
+							} catch (IOException ex) {
+								failureCount.incrementAndGet();
+								err.println(job[0].getPath() + ": " + ex.getMessage());
+							}
+						}
+					});
+				}
+				invokeAll(tasks);
+			}
+		});
+	}
+
+	private void report(String name, long inputSize, long outputSize, long nanos) {
+		double seconds = Math.max(nanos, 1) / 1e9;
+		out.println(String.format("%s: %d -> %d bytes in %.1f ms (%.1f MB/s)", name, inputSize, outputSize, seconds * 1000, inputSize / seconds / (1 << 20)));
+	}
+
+	/**
+	 * Convert a single file. Chunks are converted in parallel, but only a few
+	 * of them at a time, and each chunk is written as soon as it and all
+	 * chunks before it have been converted. If the file cannot be converted
+	 * completely, the partially written output file is deleted again.
+	 *
+	 * @return input size and output size
+	 */
+	private long[] transcode(File input, File output) throws IOException {
+		FileInputStream in = new FileInputStream(input);
+		try {
+			final FileChannel channel = in.getChannel();
+			final long size = channel.size();
+			final long[] boundaries = findBoundaries(channel, size);
+			File parent = output.getAbsoluteFile().getParentFile();
+			// another job may create the same directory concurrently
+			if (parent != null && !parent.mkdirs() && !parent.isDirectory())
+				throw new IOException("Unable to create directory " + parent);
+			FileOutputStream fos = new FileOutputStream(output);
+			boolean success = false;
+			try {
+				long outputSize = transcodeChunks(channel, boundaries, fos.getChannel());
+				success = true;
+				return new long[] { size, outputSize };
+			} finally {
+				fos.close();
+				if (!success)
+					output.delete();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Convert all chunks of a file and write them in order. At most twice as
+	 * many chunks as the pool has threads are converted or waiting to be
+	 * written at the same time. In compact output, a group that extends
+	 * across a chunk boundary is joined again, so that the output does not
+	 * depend on the chunk size.
+	 *
+	 * @return output size
+	 */
+	private long transcodeChunks(final FileChannel channel, final long[] boundaries, FileChannel outChannel) throws IOException {
+		final int count = boundaries.length - 1;
+		int window = ForkJoinTask.getPool().getParallelism() * 2;
+		List<ForkJoinTask<Chunk>> tasks = new ArrayList<ForkJoinTask<Chunk>>(count);
+		for (int i = 0; i < count; i++) {
+			final int chunk = i;
+			tasks.add(new RecursiveTask<Chunk>() {
+				@Override
+				protected Chunk compute() {
+					try {
+						return transcodeChunk(channel, boundaries[chunk], boundaries[chunk + 1], chunk == count - 1);
+					} catch (IOException ex) {
+						return new Chunk(ex);
+					}
+				}
+			});
+		}
+		for (int i = 0; i < window && i < count; i++) {
+			tasks.get(i).fork();
+		}
+		long offset = 0, outputSize = 0;
+		boolean groupOpen = false;
+		try {
+			for (int i = 0; i < count; i++) {
+				Chunk chunk = tasks.get(i).join();
+				tasks.set(i, null);
+				if (i + window < count)
+					tasks.get(i + window).fork();
+				if (offset != boundaries[i] || boundaries[i] == boundaries[i + 1]) {
+					if (offset >= boundaries[i + 1])
+						continue;
+					chunk = transcodeChunk(channel, offset, boundaries[i + 1], i == count - 1);
+				}
+				if (chunk.exception != null)
+					throw chunk.exception;
+				if (chunk.stopOffset < 0)
+					throw new IOException("Invalid input at offset " + (-1 - chunk.stopOffset));
+				ByteBuffer part = chunk.output;
+				if (groupOpen && chunk.groupAtStart) {
+					// continue the group: "[#" becomes ","
+					part.position(part.position() + 1);
+					part.put(part.position(), (byte) ',');
+				} else if (groupOpen) {
+					outputSize += write(outChannel, ByteBuffer.wrap(new byte[] { ']' }));
+				}
+				groupOpen = chunk.groupAtEnd;
+				if (groupOpen)
+					part.limit(part.limit() - 1);
+				outputSize += write(outChannel, part);
+				offset = chunk.stopOffset;
+			}
+			if (groupOpen)
+				outputSize += write(outChannel, ByteBuffer.wrap(new byte[] { ']' }));
+		} finally {
+			for (ForkJoinTask<Chunk> task : tasks) {
+				if (task != null)
+					task.cancel(false);
+			}
+		}
+		return outputSize;
+	}
+
+	private static long write(FileChannel channel, ByteBuffer buffer) throws IOException {
+		int length = buffer.remaining();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		return length;
+	}
+
+	/**
+	 * Split a file into chunks. When encoding, chunks never split a UTF-8
+	 * sequence; when decoding, chunks are split before an opening square
+	 * bracket if there is one nearby.
+	 */
+	private long[] findBoundaries(FileChannel channel, long size) throws IOException {
+		int count = (int) ((size - 1) / chunkSize + 1);
+		long[] boundaries = new long[Math.max(count, 1) + 1];
+		ByteBuffer probe = ByteBuffer.allocate(decode ? BOUNDARY_SEARCH_LENGTH : 4);
+		for (int i = 1; i < boundaries.length - 1; i++) {
+			long boundary = (long) i * chunkSize;
+			probe.clear();
+			if (probe.limit() > size - boundary)
+				probe.limit((int) (size - boundary));
+			while (probe.hasRemaining() && channel.read(probe, boundary + probe.position()) != -1)
+				;
+			for (int pos = 0; pos < probe.position(); pos++) {
+				byte b = probe.get(pos);
+				if (decode ? b == '[' : (b & 0xC0) != 0x80) {
+					boundary += pos;
+					break;
+				}
+			}
+			boundaries[i] = boundary;
+		}
+		boundaries[boundaries.length - 1] = size;
+		return boundaries;
+	}
+
+	private Chunk transcodeChunk(FileChannel channel, long start, long end, boolean last) throws IOException {
+		if (end - start > Integer.MAX_VALUE)
+			throw new IOException("Token at offset " + start + " too long");
+		ByteBuffer in = channel.map(MapMode.READ_ONLY, start, end - start);
+		int length = (int) (end - start);
+		ByteBuffer output = ByteBuffer.allocate(decode ? length + 16 : length + length / 8 + 16);
+		CoderResult result;
+		// restart from the beginning instead of resuming, which would split a group
+		while ((result = decode ? mnemonifier.unmnemonifyUTF8(in, output, last, strict) : mnemonifier.mnemonifyUTF8(in, output, true)).isOverflow()) {
+			in.position(0);
+			output = ByteBuffer.allocate(output.capacity() * 2);
+		}
+		output.flip();
+		long stopOffset = start + in.position();
+		if (result.isError())
+			return new Chunk(output, -1 - stopOffset, false, false);
+		boolean grouped = !decode && mnemonifier.isCompact();
+		int lastStart = length - 1;
+		while (lastStart > 0 && lastStart > length - 4 && (in.get(lastStart) & 0xC0) == 0x80) {
+			lastStart--;
+		}
+		return new Chunk(output, stopOffset, grouped && isEncodedAsHex(in, 0, length), grouped && isEncodedAsHex(in, lastStart, length));
+	}
+
+	/**
+	 * Check whether the codepoint at the given offset is encoded as hex code,
+	 * and therefore starts or ends a group in compact output.
+	 */
+	private boolean isEncodedAsHex(ByteBuffer in, int offset, int end) {
+		if (offset < 0 || offset >= end || in.get(offset) >= 0)
+			return false;
+		long decoded = UTF8.decode(in, offset, end, true);
+		return decoded >= 0 && mnemonifier.isEncodedAsHex((int) decoded);
+	}
+
+	private static class Chunk {
+		private final ByteBuffer output;
+		private final long stopOffset;
+		private final boolean groupAtStart, groupAtEnd;
+		private final IOException exception;
+
+		private Chunk(ByteBuffer output, long stopOffset, boolean groupAtStart, boolean groupAtEnd) {
+			this.output = output;
+			this.stopOffset = stopOffset;
+			this.groupAtStart = groupAtStart;
+			this.groupAtEnd = groupAtEnd;
+			this.exception = null;
+		}
+
+		private Chunk(IOException exception) {
+			this.output = null;
+			this.stopOffset = 0;
+			this.groupAtStart = this.groupAtEnd = false;
+			this.exception = exception;
+		}
+	}
+}
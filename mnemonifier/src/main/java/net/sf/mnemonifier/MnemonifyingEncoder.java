@@ -0,0 +1,106 @@
+package net.sf.mnemonifier;
+
+/**
+ * Stateful encoder that mnemonifies text pushed to it in chunks of arbitrary
+ * size, for non-blocking pipelines where a {@link MnemonifyingWriter} cannot
+ * be used.
+ *
+ * <p>
+ * Surrogate pairs may be split across chunks; a trailing high surrogate is
+ * kept until the next chunk is encoded or {@link #finish(StringBuilder)} is
+ * called. In compact output, groups may span chunks, so the concatenated
+ * output is the same as if the whole input had been encoded at once.
+ *
+ * <p>
+ * Instances are not thread-safe. After calling
+ * {@link #finish(StringBuilder)}, an encoder can be reused for another input.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class MnemonifyingEncoder {
+
+	private final Mnemonifier mnemonifier;
+	private final MnemonifierMetrics.CodepointCounts counts;
+	private char pendingHighSurrogate = 0;
+	private boolean groupOpen = false;
+
+	/**
+	 * Create a new mnemonifying encoder.
+	 *
+	 * @param mnemonifier
+	 *            mnemonifier to use for encoding
+	 */
+	public MnemonifyingEncoder(Mnemonifier mnemonifier) {
+		this.mnemonifier = mnemonifier;
+		this.counts = mnemonifier.newCodepointCounts();
+	}
+
+	/**
+	 * Encode the next chunk of input.
+	 *
+	 * @param chunk
+	 *            next part of the original text
+	 * @param out
+	 *            string builder to append mnemonified text to
+	 */
+	public void encode(CharSequence chunk, StringBuilder out) {
+		int end = chunk.length();
+		int i = 0;
+		if (pendingHighSurrogate != 0 && end > 0) {
+			char high = pendingHighSurrogate;
+			pendingHighSurrogate = 0;
+			if (Character.isLowSurrogate(chunk.charAt(0))) {
+				groupOpen = mnemonifier.appendMnemonifiedCodepoint(out, Character.toCodePoint(high, chunk.charAt(0)), groupOpen, counts);
+				i++;
+			} else {
+				groupOpen = mnemonifier.appendMnemonifiedCodepoint(out, high, groupOpen, counts);
+			}
+		}
+		while (i < end) {
+			int plainEnd = AsciiScanner.skipPlain(chunk, i, end);
+			if (plainEnd > i) {
+				closeGroup(out);
+				out.append(chunk, i, plainEnd);
+				i = plainEnd;
+				if (i == end)
+					break;
+			}
+			char c = chunk.charAt(i);
+			int codepoint = c;
+			if (Character.isHighSurrogate(c)) {
+				if (i + 1 == end) {
+					pendingHighSurrogate = c;
+					break;
+				}
+				if (Character.isLowSurrogate(chunk.charAt(i + 1)))
+					codepoint = Character.toCodePoint(c, chunk.charAt(i + 1));
+			}
+			groupOpen = mnemonifier.appendMnemonifiedCodepoint(out, codepoint, groupOpen, counts);
+			i += Character.charCount(codepoint);
+		}
+		mnemonifier.recordCodepointCounts(counts);
+	}
+
+	/**
+	 * Finish encoding, by encoding a trailing high surrogate and closing an
+	 * open group.
+	 *
+	 * @param out
+	 *            string builder to append mnemonified text to
+	 */
+	public void finish(StringBuilder out) {
+		if (pendingHighSurrogate != 0) {
+			groupOpen = mnemonifier.appendMnemonifiedCodepoint(out, pendingHighSurrogate, groupOpen, counts);
+			pendingHighSurrogate = 0;
+			mnemonifier.recordCodepointCounts(counts);
+		}
+		closeGroup(out);
+	}
+
+	private void closeGroup(StringBuilder out) {
+		if (groupOpen) {
+			out.append(']');
+			groupOpen = false;
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package net.sf.mnemonifier;
+
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Formatter that mnemonifies the output of another formatter, so that log
+ * files stay ASCII-only while all characters can still be recovered. It can
+ * be used with any handler; {@link MnemonifyingHandler} uses its mnemonifier
+ * and delegate directly, to encode on its background thread instead.
+ *
+ * <p>
+ * When created by the {@link LogManager}, the following properties are
+ * used (prefixed with the class name and a dot):
+ * <dl>
+ * <dt>{@code formatter}</dt>
+ * <dd>class name of the delegate formatter (default:
+ * {@link SimpleFormatter})</dd>
+ * <dt>{@code compact}</dt>
+ * <dd>whether to group runs of hex codes (default: {@code false})</dd>
+ * </dl>
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class MnemonifyingFormatter extends Formatter {
+
+	private final Formatter delegate;
+	private final Mnemonifier mnemonifier;
+
+	/**
+	 * Create a new formatter configured by the {@link LogManager}.
+	 */
+	public MnemonifyingFormatter() {
+		String prefix = MnemonifyingFormatter.class.getName();
+		delegate = createFormatter(getProperty(prefix + ".formatter", null));
+		mnemonifier = new Mnemonifier(MnemonicTable.getDefault(), Boolean.parseBoolean(getProperty(prefix + ".compact", "false")));
+	}
+
+	/**
+	 * Create a new formatter.
+	 *
+	 * @param delegate
+	 *            formatter that produces the original text
+	 * @param mnemonifier
+	 *            mnemonifier to use for encoding
+	 */
+	public MnemonifyingFormatter(Formatter delegate, Mnemonifier mnemonifier) {
+		this.delegate = delegate;
+		this.mnemonifier = mnemonifier;
+	}
+
+	/**
+	 * Return the formatter that produces the original text.
+	 *
+	 * @return the delegate formatter
+	 */
+	public Formatter getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * Return the mnemonifier used for encoding.
+	 *
+	 * @return the mnemonifier
+	 */
+	public Mnemonifier getMnemonifier() {
+		return mnemonifier;
+	}
+
+	@Override
+	public String format(LogRecord record) {
+		return mnemonifier.mnemonify(delegate.format(record));
+	}
+
+	@Override
+	public String getHead(Handler h) {
+		return mnemonifier.mnemonify(delegate.getHead(h));
+	}
+
+	@Override
+	public String getTail(Handler h) {
+		return mnemonifier.mnemonify(delegate.getTail(h));
+	}
+
+	/**
+	 * Return a logging property.
+	 *
+	 * @param name
+	 *            full name of the property
+	 * @param defaultValue
+	 *            value to return if the property is not set
+	 * @return the trimmed value of the property, or {@code defaultValue}
+	 */
+	static String getProperty(String name, String defaultValue) {
+		String value = LogManager.getLogManager().getProperty(name);
+		return value == null || value.trim().length() == 0 ? defaultValue : value.trim();
+	}
+
+	/**
+	 * Instantiate a formatter by class name.
+	 *
+	 * @param className
+	 *            class name of the formatter, or {@code null}
+	 * @return the formatter, or a {@link SimpleFormatter} if the class name
+	 *         is {@code null} or the formatter cannot be instantiated
+	 */
+	static Formatter createFormatter(String className) {
+		if (className != null) {
+			try {
+				return (Formatter) ClassLoader.getSystemClassLoader().loadClass(className).getDeclaredConstructor().newInstance();
+			} catch (Exception ex) {
+				// fall back to the default formatter, like the JDK's handlers do
+			}
+		}
+		return new SimpleFormatter();
+	}
+}
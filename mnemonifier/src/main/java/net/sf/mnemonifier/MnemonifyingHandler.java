@@ -0,0 +1,301 @@
+package net.sf.mnemonifier;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Filter;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Handler that mnemonifies log records on a background thread and writes
+ * them to an output stream, so that logging threads only pay for putting the
+ * record into a bounded lock-free ring buffer.
+ *
+ * <p>
+ * The background thread takes all records that are available, formats them
+ * with the handler's formatter, encodes them into a reusable buffer and
+ * writes them in a single batch. As mnemonified text is ASCII-only, it is
+ * written without a charset encoder. If the formatter is a
+ * {@link MnemonifyingFormatter}, its delegate and mnemonifier are used
+ * instead of encoding twice.
+ *
+ * <p>
+ * When the ring buffer is full, new records are either dropped (and counted)
+ * or the logging thread waits until there is space again, depending on the
+ * {@link OverflowPolicy}. As records are formatted later, their parameters
+ * should not be modified after logging them. The caller of a record is only
+ * inferred on the logging thread if enabled, as this requires a stack walk;
+ * otherwise, formatters that print the source of the record print the logger
+ * name instead.
+ *
+ * <p>
+ * When created by the {@link LogManager}, the handler writes to
+ * {@code System.err} and uses the following properties (prefixed with the
+ * class name and a dot):
+ * <dl>
+ * <dt>{@code level}</dt>
+ * <dd>level of the handler (default: {@code ALL})</dd>
+ * <dt>{@code filter}</dt>
+ * <dd>class name of the filter (default: none)</dd>
+ * <dt>{@code formatter}</dt>
+ * <dd>class name of the formatter (default: {@link SimpleFormatter})</dd>
+ * <dt>{@code capacity}</dt>
+ * <dd>capacity of the ring buffer (default: 1024)</dd>
+ * <dt>{@code overflowPolicy}</dt>
+ * <dd>{@code DROP} or {@code BLOCK} (default: {@code DROP})</dd>
+ * <dt>{@code compact}</dt>
+ * <dd>whether to group runs of hex codes (default: {@code false})</dd>
+ * <dt>{@code inferCaller}</dt>
+ * <dd>whether to infer the caller on the logging thread (default:
+ * {@code false})</dd>
+ * </dl>
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class MnemonifyingHandler extends Handler {
+
+	/**
+	 * What to do with a record when the ring buffer is full.
+	 */
+	public static enum OverflowPolicy {
+		/**
+		 * Drop the record and count it.
+		 */
+		DROP,
+
+		/**
+		 * Wait until the background thread has made space for the record.
+		 */
+		BLOCK
+	}
+
+	private static final int BATCH_SIZE = 65536;
+	private static final long BLOCKED_NANOS = 10000;
+
+	private final OutputStream out;
+	private final boolean closeStream;
+	private final Mnemonifier mnemonifier;
+	private final RingBuffer<LogRecord> buffer;
+	private final OverflowPolicy overflowPolicy;
+	private final LongAdder droppedCount = new LongAdder();
+	private final Thread thread;
+	private final StringBuilder sb = new StringBuilder();
+	private byte[] bytes = new byte[BATCH_SIZE];
+	private boolean inferCaller = false, headWritten = false;
+	private volatile boolean sleeping = false, running = true, closed = false;
+	private volatile long written = 0;
+
+	/**
+	 * Create a new handler configured by the {@link LogManager}.
+	 */
+	public MnemonifyingHandler() {
+		this(System.err, false, new Mnemonifier(MnemonicTable.getDefault(), Boolean.parseBoolean(getProperty("compact", "false"))), Integer.parseInt(getProperty("capacity", "1024")), OverflowPolicy.valueOf(getProperty("overflowPolicy", "DROP")));
+		setLevel(Level.parse(getProperty("level", "ALL")));
+		setFormatter(MnemonifyingFormatter.createFormatter(getProperty("formatter", null)));
+		String filter = getProperty("filter", null);
+		if (filter != null) {
+			try {
+				setFilter((Filter) ClassLoader.getSystemClassLoader().loadClass(filter).getDeclaredConstructor().newInstance());
+			} catch (Exception ex) {
+				// no filter, like the JDK's handlers do
+			}
+		}
+		inferCaller = Boolean.parseBoolean(getProperty("inferCaller", "false"));
+	}
+
+	/**
+	 * Create a new handler with a {@link SimpleFormatter}.
+	 *
+	 * @param out
+	 *            output stream to write to; it is closed when the handler is
+	 *            closed
+	 * @param mnemonifier
+	 *            mnemonifier to use for encoding
+	 * @param capacity
+	 *            number of records the ring buffer can hold at least
+	 * @param overflowPolicy
+	 *            what to do when the ring buffer is full
+	 */
+	public MnemonifyingHandler(OutputStream out, Mnemonifier mnemonifier, int capacity, OverflowPolicy overflowPolicy) {
+		this(out, true, mnemonifier, capacity, overflowPolicy);
+		setFormatter(new SimpleFormatter());
+	}
+
+	private MnemonifyingHandler(OutputStream out, boolean closeStream, Mnemonifier mnemonifier, int capacity, OverflowPolicy overflowPolicy) {
+		this.out = out;
+		this.closeStream = closeStream;
+		this.mnemonifier = mnemonifier;
+		this.buffer = new RingBuffer<LogRecord>(capacity);
+		this.overflowPolicy = overflowPolicy;
+		thread = new Thread(new Runnable() {
+			public void run() {
+				drain();
+			}
+		}, "MnemonifyingHandler");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private static String getProperty(String name, String defaultValue) {
+		return MnemonifyingFormatter.getProperty(MnemonifyingHandler.class.getName() + "." + name, defaultValue);
+	}
+
+	/**
+	 * Set whether the caller of a record is inferred on the logging thread.
+	 *
+	 * @param inferCaller
+	 *            whether to infer the caller before enqueueing the record
+	 */
+	public void setInferCaller(boolean inferCaller) {
+		this.inferCaller = inferCaller;
+	}
+
+	/**
+	 * Return the number of records that have been dropped because the ring
+	 * buffer was full.
+	 *
+	 * @return number of dropped records
+	 */
+	public long getDroppedCount() {
+		return droppedCount.sum();
+	}
+
+	@Override
+	public void publish(LogRecord record) {
+		if (closed || !isLoggable(record))
+			return;
+		if (inferCaller)
+			record.getSourceClassName();
+		while (!buffer.offer(record)) {
+			if (overflowPolicy == OverflowPolicy.DROP || closed || Thread.currentThread() == thread) {
+				droppedCount.increment();
+				return;
+			}
+			LockSupport.unpark(thread);
+			LockSupport.parkNanos(this, BLOCKED_NANOS);
+		}
+		if (sleeping)
+			LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Wait until all records published before have been written, and flush
+	 * the output stream.
+	 */
+	@Override
+	public void flush() {
+		if (Thread.currentThread() == thread)
+			return;
+		long target = buffer.getTail();
+		while (written < target && thread.isAlive()) {
+			LockSupport.unpark(thread);
+			LockSupport.parkNanos(this, BLOCKED_NANOS);
+		}
+	}
+
+	/**
+	 * Write all pending records, stop the background thread, write the tail
+	 * of the formatter, and close the output stream (unless it is
+	 * {@code System.err}).
+	 */
+	@Override
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		flush();
+		running = false;
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			Formatter formatter = getFormatter();
+			if (headWritten)
+				write(getDelegate(formatter).getTail(this));
+			writeBatch();
+			if (closeStream)
+				out.close();
+			else
+				out.flush();
+		} catch (Exception ex) {
+			reportError(null, ex, ErrorManager.CLOSE_FAILURE);
+		}
+	}
+
+	private void drain() {
+		while (true) {
+			LogRecord record = buffer.poll();
+			if (record != null) {
+				format(record);
+				if (sb.length() >= BATCH_SIZE)
+					writeBatch();
+				continue;
+			}
+			if (sb.length() > 0)
+				writeBatch();
+			else
+				written = buffer.getHead();
+			if (!running && buffer.getHead() == buffer.getTail())
+				return;
+			// publish, flush and close unpark the thread when sleeping is set
+			sleeping = true;
+			if (buffer.getHead() == buffer.getTail())
+				LockSupport.park(this);
+			sleeping = false;
+		}
+	}
+
+	private void format(LogRecord record) {
+		String text;
+		try {
+			Formatter formatter = getFormatter();
+			if (!headWritten) {
+				headWritten = true;
+				write(getDelegate(formatter).getHead(this));
+			}
+			text = getDelegate(formatter).format(record);
+		} catch (Exception ex) {
+			reportError(null, ex, ErrorManager.FORMAT_FAILURE);
+			return;
+		}
+		write(text);
+	}
+
+	private void write(String text) {
+		Formatter formatter = getFormatter();
+		Mnemonifier m = formatter instanceof MnemonifyingFormatter ? ((MnemonifyingFormatter) formatter).getMnemonifier() : mnemonifier;
+		m.mnemonify(text, 0, text.length(), sb);
+	}
+
+	private static Formatter getDelegate(Formatter formatter) {
+		return formatter instanceof MnemonifyingFormatter ? ((MnemonifyingFormatter) formatter).getDelegate() : formatter;
+	}
+
+	private void writeBatch() {
+		int length = sb.length();
+		if (bytes.length < length)
+			bytes = new byte[Math.max(length, bytes.length * 2)];
+		for (int i = 0; i < length; i++) {
+			char c = sb.charAt(i);
+			bytes[i] = (byte) (c < 128 ? c : '?');
+		}
+		sb.setLength(0);
+		try {
+			out.write(bytes, 0, length);
+			out.flush();
+		} catch (IOException ex) {
+			reportError(null, ex, ErrorManager.WRITE_FAILURE);
+		}
+		written = buffer.getHead();
+	}
+}
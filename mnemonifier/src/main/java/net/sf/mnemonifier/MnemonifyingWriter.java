@@ -0,0 +1,161 @@
+package net.sf.mnemonifier;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer that mnemonifies all characters written to it before passing them to
+ * an underlying writer.
+ *
+ * <p>
+ * Characters are encoded on the fly and collected in a buffer of bounded size,
+ * so that arbitrarily large inputs can be converted in constant memory.
+ * Surrogate pairs may be split across calls to {@code write}; a trailing high
+ * surrogate is kept until the next character is written or the writer is
+ * closed.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class MnemonifyingWriter extends Writer {
+
+	private final Writer out;
+	private final Mnemonifier mnemonifier;
+	private final MnemonifierMetrics.CodepointCounts counts;
+	private final char[] buffer;
+	private final StringBuilder tokenBuffer = new StringBuilder();
+	private int bufferLength = 0;
+	private char pendingHighSurrogate = 0;
+	private boolean groupOpen = false;
+
+	/**
+	 * Create a new mnemonifying writer with default buffer size.
+	 *
+	 * @param out
+	 *            underlying writer
+	 * @param mnemonifier
+	 *            mnemonifier to use for encoding
+	 */
+	public MnemonifyingWriter(Writer out, Mnemonifier mnemonifier) {
+		this(out, mnemonifier, 8192);
+	}
+
+	/**
+	 * Create a new mnemonifying writer.
+	 *
+	 * @param out
+	 *            underlying writer
+	 * @param mnemonifier
+	 *            mnemonifier to use for encoding
+	 * @param bufferSize
+	 *            size of the output buffer
+	 */
+	public MnemonifyingWriter(Writer out, Mnemonifier mnemonifier, int bufferSize) {
+		if (bufferSize <= 0)
+			throw new IllegalArgumentException("Buffer size <= 0");
+		this.out = out;
+		this.mnemonifier = mnemonifier;
+		this.counts = mnemonifier.newCodepointCounts();
+		this.buffer = new char[bufferSize];
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		ensureOpen();
+		for (int i = off; i < off + len; i++) {
+			writeChar(cbuf[i]);
+		}
+		mnemonifier.recordCodepointCounts(counts);
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		ensureOpen();
+		for (int i = off; i < off + len; i++) {
+			writeChar(str.charAt(i));
+		}
+		mnemonifier.recordCodepointCounts(counts);
+	}
+
+	private void writeChar(char c) throws IOException {
+		if (pendingHighSurrogate != 0) {
+			char high = pendingHighSurrogate;
+			pendingHighSurrogate = 0;
+			if (Character.isLowSurrogate(c)) {
+				writeCodepoint(Character.toCodePoint(high, c));
+				return;
+			}
+			writeCodepoint(high);
+		}
+		if (Character.isHighSurrogate(c)) {
+			pendingHighSurrogate = c;
+		} else if (c < 128 && c != '[' && c != ']') {
+			closeGroup();
+			if (bufferLength == buffer.length)
+				flushBuffer();
+			buffer[bufferLength++] = c;
+		} else {
+			writeCodepoint(c);
+		}
+	}
+
+	private void writeCodepoint(int codepoint) throws IOException {
+		tokenBuffer.setLength(0);
+		groupOpen = mnemonifier.appendMnemonifiedCodepoint(tokenBuffer, codepoint, groupOpen, counts);
+		int length = tokenBuffer.length();
+		for (int pos = 0; pos < length;) {
+			if (bufferLength == buffer.length)
+				flushBuffer();
+			int count = Math.min(length - pos, buffer.length - bufferLength);
+			tokenBuffer.getChars(pos, pos + count, buffer, bufferLength);
+			bufferLength += count;
+			pos += count;
+		}
+	}
+
+	private void closeGroup() throws IOException {
+		if (groupOpen) {
+			groupOpen = false;
+			if (bufferLength == buffer.length)
+				flushBuffer();
+			buffer[bufferLength++] = ']';
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		out.write(buffer, 0, bufferLength);
+		bufferLength = 0;
+	}
+
+	private void ensureOpen() throws IOException {
+		if (bufferLength == -1)
+			throw new IOException("Stream closed");
+	}
+
+	/**
+	 * Flush the stream. A trailing high surrogate is not flushed, as it may be
+	 * completed by the next character written. In compact output, an open
+	 * group is closed.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		closeGroup();
+		flushBuffer();
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (bufferLength == -1)
+			return;
+		if (pendingHighSurrogate != 0) {
+			writeCodepoint(pendingHighSurrogate);
+			pendingHighSurrogate = 0;
+			mnemonifier.recordCodepointCounts(counts);
+		}
+		closeGroup();
+		flushBuffer();
+		bufferLength = -1;
+		out.close();
+	}
+}
@@ -0,0 +1,259 @@
+package net.sf.mnemonifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Converts very large character sequences by splitting them into chunks that
+ * are processed in parallel on a {@link ForkJoinPool}. The results are
+ * identical to the ones of the sequential methods of {@link Mnemonifier}.
+ *
+ * <p>
+ * When encoding, chunks are never split inside a surrogate pair, and groups
+ * of compact output that span a chunk boundary are joined again. When
+ * decoding, chunk boundaries are moved to the next opening square bracket (if
+ * there is one nearby). As a token may still extend across a chunk boundary
+ * (for example, when the codepoint information contains square brackets),
+ * every chunk decodes the tokens that start inside it completely and reports
+ * where it stopped; if the next chunk was started at a different offset, its
+ * affected part is decoded again sequentially when stitching the results.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class ParallelMnemonifier {
+
+	private static final int BOUNDARY_SEARCH_LENGTH = 256;
+
+	private final Mnemonifier mnemonifier;
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+
+	/**
+	 * Create a new parallel mnemonifier that uses the common pool and chunks
+	 * of 1M characters.
+	 *
+	 * @param mnemonifier
+	 *            mnemonifier to use for encoding and decoding
+	 */
+	public ParallelMnemonifier(Mnemonifier mnemonifier) {
+		this(mnemonifier, ForkJoinPool.commonPool(), 1 << 20);
+	}
+
+	/**
+	 * Create a new parallel mnemonifier.
+	 *
+	 * @param mnemonifier
+	 *            mnemonifier to use for encoding and decoding
+	 * @param pool
+	 *            pool to run the chunk tasks in
+	 * @param chunkSize
+	 *            approximate number of input characters per chunk
+	 */
+	public ParallelMnemonifier(Mnemonifier mnemonifier, ForkJoinPool pool, int chunkSize) {
+		if (chunkSize <= 0)
+			throw new IllegalArgumentException("Chunk size <= 0");
+		this.mnemonifier = mnemonifier;
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Convert any Unicode text into mnemonics.
+	 *
+	 * @param input
+	 *            original text
+	 * @return mnemonified string
+	 * @see Mnemonifier#mnemonify(String)
+	 */
+	public String mnemonify(final CharSequence input) {
+		if (input.length() <= chunkSize)
+			return mnemonifier.mnemonify(input.toString());
+		int[] allBoundaries = new int[(input.length() - 1) / chunkSize + 2];
+		int count = 1;
+		for (int i = 1; i < allBoundaries.length - 1; i++) {
+			int boundary = i * chunkSize;
+			if (Character.isHighSurrogate(input.charAt(boundary - 1)) && Character.isLowSurrogate(input.charAt(boundary)))
+				boundary++;
+			// skip chunks that became empty, so that every chunk contains a codepoint
+			if (boundary > allBoundaries[count - 1] && boundary < input.length())
+				allBoundaries[count++] = boundary;
+		}
+		allBoundaries[count++] = input.length();
+		final int[] boundaries = Arrays.copyOf(allBoundaries, count);
+		final StringBuilder[] results = new StringBuilder[boundaries.length - 1];
+		runChunks(results.length, new ChunkProcessor() {
+			public void process(int chunk) {
+				int start = boundaries[chunk], end = boundaries[chunk + 1];
+				StringBuilder sb = new StringBuilder(end - start + 16);
+				if (mnemonifier.mnemonify(input, start, end, sb))
+					results[chunk] = sb;
+			}
+		});
+		boolean changed = false;
+		int length = 0;
+		for (int i = 0; i < results.length; i++) {
+			changed |= results[i] != null;
+			length += results[i] != null ? results[i].length() : boundaries[i + 1] - boundaries[i];
+		}
+		if (!changed)
+			return input.toString();
+		StringBuilder sb = new StringBuilder(length);
+		boolean joinGroups = false;
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] == null) {
+				sb.append(input, boundaries[i], boundaries[i + 1]);
+				continue;
+			}
+			if (joinGroups)
+				sb.append(',').append(results[i], 2, results[i].length());
+			else
+				sb.append(results[i]);
+			// join groups of compact output that were split at the chunk boundary
+			joinGroups = mnemonifier.isCompact() && i + 1 < results.length && results[i + 1] != null && mnemonifier.isEncodedAsHex(Character.codePointBefore(input, boundaries[i + 1])) && mnemonifier.isEncodedAsHex(Character.codePointAt(input, boundaries[i + 1]));
+			if (joinGroups)
+				sb.setLength(sb.length() - 1);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Convert many strings into mnemonics at once, storing all results in a
+	 * single char array. The inputs are split into ranges of about
+	 * {@code chunkSize} characters, which are encoded in parallel.
+	 *
+	 * @param inputs
+	 *            original texts
+	 * @return mnemonified forms of all inputs
+	 * @see Mnemonifier#mnemonifyBatch(List)
+	 */
+	public MnemonifiedBatch mnemonifyBatch(final List<? extends CharSequence> inputs) {
+		int size = inputs.size();
+		int[] allRangeStarts = new int[size + 1];
+		int count = 0, rangeLength = chunkSize;
+		for (int i = 0; i < size; i++) {
+			if (rangeLength >= chunkSize) {
+				allRangeStarts[count++] = i;
+				rangeLength = 0;
+			}
+			rangeLength += inputs.get(i).length();
+		}
+		if (count <= 1)
+			return mnemonifier.mnemonifyBatch(inputs);
+		allRangeStarts[count] = size;
+		final int[] rangeStarts = Arrays.copyOf(allRangeStarts, count + 1);
+		final StringBuilder[] results = new StringBuilder[count];
+		final int[][] ends = new int[count][];
+		runChunks(count, new ChunkProcessor() {
+			public void process(int chunk) {
+				int from = rangeStarts[chunk], to = rangeStarts[chunk + 1];
+				results[chunk] = new StringBuilder(chunkSize + 16);
+				ends[chunk] = new int[to - from];
+				MnemonifiedBatch.encode(mnemonifier, inputs, from, to, results[chunk], ends[chunk], 0);
+			}
+		});
+		int length = 0;
+		for (int i = 0; i < count; i++) {
+			length += results[i].length();
+		}
+		char[] data = new char[length];
+		int[] offsets = new int[size + 1];
+		int base = 0;
+		for (int i = 0; i < count; i++) {
+			results[i].getChars(0, results[i].length(), data, base);
+			for (int j = 0; j < ends[i].length; j++) {
+				offsets[rangeStarts[i] + j + 1] = base + ends[i][j];
+			}
+			base += results[i].length();
+			results[i] = null;
+		}
+		return new MnemonifiedBatch(data, offsets);
+	}
+
+	/**
+	 * Convert mnemonified text back to original.
+	 *
+	 * @param input
+	 *            mnemonified text
+	 * @param strict
+	 *            whether to use strict decoding rules
+	 * @return original string
+	 * @throws IllegalArgumentException
+	 *             if strict decoding rules are used and the input is invalid
+	 * @see Mnemonifier#unmnemonify(String, boolean)
+	 */
+	public String unmnemonify(final CharSequence input, final boolean strict) {
+		if (input.length() <= chunkSize)
+			return mnemonifier.unmnemonify(input.toString(), strict);
+		final int[] boundaries = new int[(input.length() - 1) / chunkSize + 2];
+		for (int i = 1; i < boundaries.length - 1; i++) {
+			int boundary = i * chunkSize;
+			int searchEnd = Math.min(boundary + BOUNDARY_SEARCH_LENGTH, Math.min((i + 1) * chunkSize, input.length()));
+			for (int pos = boundary; pos < searchEnd; pos++) {
+				if (input.charAt(pos) == '[') {
+					boundary = pos;
+					break;
+				}
+			}
+			boundaries[i] = boundary;
+		}
+		boundaries[boundaries.length - 1] = input.length();
+		final StringBuilder[] results = new StringBuilder[boundaries.length - 1];
+		final int[] stopOffsets = new int[results.length];
+		runChunks(results.length, new ChunkProcessor() {
+			public void process(int chunk) {
+				int start = boundaries[chunk], end = boundaries[chunk + 1];
+				results[chunk] = new StringBuilder(end - start);
+				stopOffsets[chunk] = mnemonifier.unmnemonify(input, start, end, input.length(), true, strict, results[chunk]);
+			}
+		});
+		int length = 0;
+		for (int i = 0; i < results.length; i++) {
+			length += results[i].length();
+		}
+		StringBuilder sb = new StringBuilder(length);
+		int offset = 0;
+		for (int i = 0; i < results.length; i++) {
+			int stopOffset;
+			if (offset == boundaries[i]) {
+				sb.append(results[i]);
+				stopOffset = stopOffsets[i];
+			} else if (offset < boundaries[i + 1]) {
+				stopOffset = mnemonifier.unmnemonify(input, offset, boundaries[i + 1], input.length(), true, strict, sb);
+			} else {
+				continue;
+			}
+			if (stopOffset < 0)
+				throw new IllegalArgumentException(input.toString());
+			results[i] = null;
+			offset = stopOffset;
+		}
+		return sb.toString();
+	}
+
+	private void runChunks(final int count, final ChunkProcessor processor) {
+		pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(count);
+				for (int i = 0; i < count; i++) {
+					final int chunk = i;
+					tasks.add(new RecursiveAction() {
+						@Override
+						protected void compute() {
+							processor.process(chunk);
+						}
+					});
+				}
+				invokeAll(tasks);
+			}
+		});
+	}
+
+	private static interface ChunkProcessor {
+		public void process(int chunk);
+	}
+}
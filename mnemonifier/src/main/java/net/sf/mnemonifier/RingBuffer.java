@@ -0,0 +1,101 @@
+package net.sf.mnemonifier;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer. Every
+ * slot carries a sequence number that tells whether it may be written (it
+ * equals the position of the producer) or read (it equals the position of
+ * the consumer plus one), so producers only contend on a compare-and-set of
+ * the tail position.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+class RingBuffer<E> {
+
+	private final int mask;
+	private final AtomicReferenceArray<E> elements;
+	private final AtomicLongArray sequences;
+	private final AtomicLong tail = new AtomicLong();
+	private volatile long head = 0;
+
+	/**
+	 * Create a new ring buffer.
+	 *
+	 * @param capacity
+	 *            minimum number of elements the buffer can hold; rounded up to
+	 *            a power of two
+	 */
+	RingBuffer(int capacity) {
+		if (capacity <= 0 || capacity > 1 << 30)
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		mask = size - 1;
+		elements = new AtomicReferenceArray<E>(size);
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * Add an element, unless the buffer is full.
+	 *
+	 * @param element
+	 *            element to add
+	 * @return whether the element has been added
+	 */
+	boolean offer(E element) {
+		while (true) {
+			long position = tail.get();
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - position;
+			if (difference < 0)
+				return false;
+			if (difference == 0 && tail.compareAndSet(position, position + 1)) {
+				elements.set(index, element);
+				sequences.set(index, position + 1);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Remove the oldest element. Must only be called by the consumer.
+	 *
+	 * @return the element, or {@code null} if the buffer is empty
+	 */
+	E poll() {
+		long position = head;
+		int index = (int) position & mask;
+		if (sequences.get(index) != position + 1)
+			return null;
+		E element = elements.get(index);
+		elements.set(index, null);
+		sequences.set(index, position + mask + 1);
+		head = position + 1;
+		return element;
+	}
+
+	/**
+	 * Return the number of elements that have been added so far.
+	 *
+	 * @return position of the next producer
+	 */
+	long getTail() {
+		return tail.get();
+	}
+
+	/**
+	 * Return the number of elements that have been removed so far.
+	 *
+	 * @return position of the consumer
+	 */
+	long getHead() {
+		return head;
+	}
+}
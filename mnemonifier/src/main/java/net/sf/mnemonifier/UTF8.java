@@ -0,0 +1,172 @@
+package net.sf.mnemonifier;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Helper methods to read and write UTF-8 encoded codepoints directly from and
+ * to byte buffers.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+final class UTF8 {
+
+	/** Result of {@link #decode}: sequence may be completed by further input. */
+	static final long INCOMPLETE = 0;
+
+	private UTF8() {
+	}
+
+	/**
+	 * Decode a single non-ASCII codepoint.
+	 *
+	 * @param in
+	 *            buffer to read from
+	 * @param offset
+	 *            absolute offset of the first byte of the codepoint
+	 * @param end
+	 *            absolute offset after the last byte available
+	 * @param endOfInput
+	 *            whether no more input follows after {@code end}
+	 * @return length of the sequence in the upper 32 bits and the decoded
+	 *         codepoint in the lower 32 bits, {@link #INCOMPLETE} if the
+	 *         sequence may be completed by further input, or the negated
+	 *         length of a malformed sequence
+	 */
+	static long decode(ByteBuffer in, int offset, int end, boolean endOfInput) {
+		int lead = in.get(offset) & 0xFF;
+		int length, codepoint, minSecond = 0x80, maxSecond = 0xBF;
+		if (lead >= 0xC2 && lead <= 0xDF) {
+			length = 2;
+			codepoint = lead & 0x1F;
+		} else if (lead >= 0xE0 && lead <= 0xEF) {
+			length = 3;
+			codepoint = lead & 0x0F;
+			if (lead == 0xE0)
+				minSecond = 0xA0;
+			else if (lead == 0xED)
+				maxSecond = 0x9F;
+		} else if (lead >= 0xF0 && lead <= 0xF4) {
+			length = 4;
+			codepoint = lead & 0x07;
+			if (lead == 0xF0)
+				minSecond = 0x90;
+			else if (lead == 0xF4)
+				maxSecond = 0x8F;
+		} else {
+			return -1;
+		}
+		for (int i = 1; i < length; i++) {
+			if (offset + i >= end)
+				return endOfInput ? -(long) i : INCOMPLETE;
+			int next = in.get(offset + i) & 0xFF;
+			if (next < (i == 1 ? minSecond : 0x80) || next > (i == 1 ? maxSecond : 0xBF))
+				return -(long) i;
+			codepoint = codepoint << 6 | (next & 0x3F);
+		}
+		return (long) length << 32 | codepoint;
+	}
+
+	/**
+	 * Return the length of the UTF-8 encoding of a codepoint.
+	 *
+	 * @param codepoint
+	 *            codepoint to encode
+	 * @return number of bytes
+	 */
+	static int length(int codepoint) {
+		return codepoint < 0x80 ? 1 : codepoint < 0x800 ? 2 : codepoint < 0x10000 ? 3 : 4;
+	}
+
+	/**
+	 * Return the length of the UTF-8 encoding of a character sequence.
+	 *
+	 * @param chars
+	 *            character sequence to encode
+	 * @return number of bytes
+	 */
+	static int length(CharSequence chars) {
+		int length = 0;
+		for (int i = 0; i < chars.length(); i++) {
+			char c = chars.charAt(i);
+			if (Character.isHighSurrogate(c) && i + 1 < chars.length() && Character.isLowSurrogate(chars.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				length += length(c);
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Write a codepoint in UTF-8 encoding.
+	 *
+	 * @param out
+	 *            buffer to write to, which must have enough space
+	 * @param codepoint
+	 *            codepoint to write
+	 */
+	static void put(ByteBuffer out, int codepoint) {
+		if (codepoint < 0x80) {
+			out.put((byte) codepoint);
+		} else if (codepoint < 0x800) {
+			out.put((byte) (0xC0 | codepoint >> 6));
+			out.put((byte) (0x80 | (codepoint & 0x3F)));
+		} else if (codepoint < 0x10000) {
+			out.put((byte) (0xE0 | codepoint >> 12));
+			out.put((byte) (0x80 | (codepoint >> 6 & 0x3F)));
+			out.put((byte) (0x80 | (codepoint & 0x3F)));
+		} else {
+			out.put((byte) (0xF0 | codepoint >> 18));
+			out.put((byte) (0x80 | (codepoint >> 12 & 0x3F)));
+			out.put((byte) (0x80 | (codepoint >> 6 & 0x3F)));
+			out.put((byte) (0x80 | (codepoint & 0x3F)));
+		}
+	}
+
+	/**
+	 * Write a character sequence in UTF-8 encoding.
+	 *
+	 * @param out
+	 *            buffer to write to, which must have enough space
+	 * @param chars
+	 *            character sequence to write
+	 */
+	static void put(ByteBuffer out, CharSequence chars) {
+		for (int i = 0; i < chars.length(); i++) {
+			char c = chars.charAt(i);
+			if (c < 0x80) {
+				out.put((byte) c);
+			} else if (Character.isHighSurrogate(c) && i + 1 < chars.length() && Character.isLowSurrogate(chars.charAt(i + 1))) {
+				put(out, Character.toCodePoint(c, chars.charAt(i + 1)));
+				i++;
+			} else {
+				put(out, c);
+			}
+		}
+	}
+
+	/**
+	 * Copy a range of bytes from one buffer to another.
+	 *
+	 * @param in
+	 *            buffer to read from
+	 * @param start
+	 *            absolute offset of the first byte to copy
+	 * @param end
+	 *            absolute offset after the last byte to copy
+	 * @param out
+	 *            buffer to write to, which must have enough space
+	 */
+	static void copy(ByteBuffer in, int start, int end, ByteBuffer out) {
+		if (in.hasArray() && out.hasArray()) {
+			System.arraycopy(in.array(), in.arrayOffset() + start, out.array(), out.arrayOffset() + out.position(), end - start);
+			out.position(out.position() + end - start);
+		} else {
+			ByteBuffer source = in.duplicate();
+			source.limit(end);
+			source.position(start);
+			out.put(source);
+		}
+	}
+}
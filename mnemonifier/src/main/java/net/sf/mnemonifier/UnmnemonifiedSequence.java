@@ -0,0 +1,200 @@
+package net.sf.mnemonifier;
+
+/**
+ * View of the original text of a mnemonified text, which is decoded on
+ * demand. Only the part up to the highest accessed offset is decoded, so
+ * that checking a prefix or a few characters of a large text takes time
+ * proportional to the part that is accessed, not to the whole text.
+ *
+ * <p>
+ * While decoding, a checkpoint is remembered every 64 decoded characters,
+ * so that random access only needs to decode from the closest checkpoint,
+ * and sequential access continues where the previous access stopped.
+ * Computing the {@linkplain #length() length} decodes the whole text once.
+ *
+ * <p>
+ * Decoding uses the same rules as
+ * {@link Mnemonifier#unmnemonify(String, boolean)}, but invalid input is only
+ * detected (and reported by an {@link IllegalArgumentException}) when the
+ * part that contains it is accessed. Instances are not thread-safe.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ * @see Mnemonifier#unmnemonifyLazily(CharSequence, boolean)
+ */
+public final class UnmnemonifiedSequence implements CharSequence {
+
+	private static final int CHECKPOINT_INTERVAL = 64;
+
+	private final Mnemonifier mnemonifier;
+	private final CharSequence input;
+	private final boolean strict;
+	private int[] checkpointOffsets = new int[16], checkpointStates = new int[16];
+	private int checkpointCount = 1;
+	private int cursorOffset = 0, cursorState = 0;
+	private int length = -1;
+
+	UnmnemonifiedSequence(Mnemonifier mnemonifier, CharSequence input, boolean strict) {
+		this.mnemonifier = mnemonifier;
+		this.input = input;
+		this.strict = strict;
+	}
+
+	/**
+	 * Return the length of the original text.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the input is invalid
+	 */
+	public int length() {
+		if (length == -1)
+			seek(Integer.MAX_VALUE);
+		return length;
+	}
+
+	/**
+	 * Return a character of the original text.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the input up to this character is invalid
+	 */
+	public char charAt(int index) {
+		int codepoint = index < 0 ? -1 : seek(index);
+		if (codepoint == -1)
+			throw new IndexOutOfBoundsException("Index: " + index);
+		return charOf(codepoint, index);
+	}
+
+	/**
+	 * Return a part of the original text as string.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the input up to the end of this part is invalid
+	 */
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || start > end)
+			throw new IndexOutOfBoundsException("Start: " + start + ", End: " + end);
+		StringBuilder sb = new StringBuilder(end - start);
+		for (int i = start; i < end; i++) {
+			sb.append(charAt(i));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Test whether a region of the original text is equal to a region of
+	 * another character sequence, like
+	 * {@link String#regionMatches(int, String, int, int)}. Only the region is
+	 * decoded.
+	 *
+	 * @param offset
+	 *            offset of the region in the original text
+	 * @param other
+	 *            other character sequence
+	 * @param otherOffset
+	 *            offset of the region in the other character sequence
+	 * @param len
+	 *            length of the regions
+	 * @return whether both regions exist and are equal
+	 * @throws IllegalArgumentException
+	 *             if the input up to the end of the region is invalid
+	 */
+	public boolean regionMatches(int offset, CharSequence other, int otherOffset, int len) {
+		if (offset < 0 || otherOffset < 0 || otherOffset > other.length() - len)
+			return false;
+		for (int i = 0; i < len; i++) {
+			int codepoint = seek(offset + i);
+			if (codepoint == -1 || charOf(codepoint, offset + i) != other.charAt(otherOffset + i))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Test whether the original text starts with a prefix. Only the length of
+	 * the prefix is decoded.
+	 *
+	 * @param prefix
+	 *            prefix to test
+	 * @return whether the original text starts with the prefix
+	 * @throws IllegalArgumentException
+	 *             if the input up to the end of the prefix is invalid
+	 */
+	public boolean startsWith(CharSequence prefix) {
+		return regionMatches(0, prefix, 0, prefix.length());
+	}
+
+	/**
+	 * Return the whole original text.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the input is invalid
+	 */
+	@Override
+	public String toString() {
+		int end = input.length();
+		StringBuilder sb = new StringBuilder(end);
+		int result = mnemonifier.unmnemonify(input, 0, end, end, true, strict, sb);
+		if (result < 0)
+			throw new IllegalArgumentException("Invalid input at offset " + (-1 - result));
+		return sb.toString();
+	}
+
+	/**
+	 * Move the cursor to the codepoint that contains a character of the
+	 * original text.
+	 *
+	 * @param index
+	 *            index of the character
+	 * @return the codepoint, or {@code -1} if the index is beyond the end of
+	 *         the original text
+	 */
+	private int seek(int index) {
+		if (length != -1 && index >= length)
+			return -1;
+		int checkpoint = Math.min(index / CHECKPOINT_INTERVAL, checkpointCount - 1);
+		if (checkpointOffsets[checkpoint] > index)
+			checkpoint--;
+		if (index < cursorOffset || checkpointOffsets[checkpoint] > cursorOffset) {
+			cursorOffset = checkpointOffsets[checkpoint];
+			cursorState = checkpointStates[checkpoint];
+		}
+		while (true) {
+			if (cursorState == input.length()) {
+				length = cursorOffset;
+				return -1;
+			}
+			long next = mnemonifier.nextCodepoint(input, cursorState, strict);
+			int codepoint = (int) next;
+			int count = Character.charCount(codepoint);
+			if (index < cursorOffset + count)
+				return codepoint;
+			cursorState = (int) (next >>> 32);
+			cursorOffset += count;
+			if (cursorOffset >= (long) checkpointCount * CHECKPOINT_INTERVAL)
+				addCheckpoint();
+		}
+	}
+
+	/**
+	 * Return the character at an index of the original text, when the cursor
+	 * is at the codepoint that contains it.
+	 */
+	private char charOf(int codepoint, int index) {
+		if (Character.isSupplementaryCodePoint(codepoint))
+			return index == cursorOffset ? Character.highSurrogate(codepoint) : Character.lowSurrogate(codepoint);
+		return (char) codepoint;
+	}
+
+	private void addCheckpoint() {
+		if (checkpointCount == checkpointOffsets.length) {
+			int[] newOffsets = new int[checkpointCount * 2], newStates = new int[checkpointCount * 2];
+			System.arraycopy(checkpointOffsets, 0, newOffsets, 0, checkpointCount);
+			System.arraycopy(checkpointStates, 0, newStates, 0, checkpointCount);
+			checkpointOffsets = newOffsets;
+			checkpointStates = newStates;
+		}
+		checkpointOffsets[checkpointCount] = cursorOffset;
+		checkpointStates[checkpointCount] = cursorState;
+		checkpointCount++;
+	}
+}
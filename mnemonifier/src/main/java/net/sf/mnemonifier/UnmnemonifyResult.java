@@ -0,0 +1,52 @@
+package net.sf.mnemonifier;
+
+/**
+ * Result of {@link Mnemonifier#tryUnmnemonify(String)}: either the original
+ * string, or the offset of the first error in the mnemonified string.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public final class UnmnemonifyResult {
+
+	private final String value;
+	private final int errorOffset;
+
+	UnmnemonifyResult(String value, int errorOffset) {
+		this.value = value;
+		this.errorOffset = errorOffset;
+	}
+
+	/**
+	 * Return whether the mnemonified string was valid.
+	 *
+	 * @return whether the string was valid
+	 */
+	public boolean isValid() {
+		return value != null;
+	}
+
+	/**
+	 * Return the original string.
+	 *
+	 * @return original string, or {@code null} if the mnemonified string was
+	 *         invalid
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * Return the offset of the first error.
+	 *
+	 * @return offset of the first error in the mnemonified string, or
+	 *         {@code -1} if it was valid
+	 */
+	public int getErrorOffset() {
+		return errorOffset;
+	}
+
+	@Override
+	public String toString() {
+		return isValid() ? value : "Invalid input at offset " + errorOffset;
+	}
+}
@@ -0,0 +1,100 @@
+package net.sf.mnemonifier;
+
+/**
+ * Stateful decoder that unmnemonifies text pushed to it in chunks of
+ * arbitrary size, for non-blocking pipelines where an
+ * {@link UnmnemonifyingReader} cannot be used.
+ *
+ * <p>
+ * Tokens may be split across chunks; an incomplete token at the end of a
+ * chunk is kept until it is completed by the next chunk or
+ * {@link #finish(StringBuilder)} is called. Tokens that are longer than 8192
+ * characters (which can only happen for codepoint information) are treated as
+ * invalid.
+ *
+ * <p>
+ * Instances are not thread-safe. After calling
+ * {@link #finish(StringBuilder)}, a decoder can be reused for another input.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class UnmnemonifyingDecoder {
+
+	private static final int MAX_PENDING = 8192;
+
+	private final Mnemonifier mnemonifier;
+	private final boolean strict;
+	private final StringBuilder pending = new StringBuilder();
+	private long position = 0;
+
+	/**
+	 * Create a new unmnemonifying decoder.
+	 *
+	 * @param mnemonifier
+	 *            mnemonifier to use for decoding
+	 * @param strict
+	 *            whether to use strict decoding rules
+	 */
+	public UnmnemonifyingDecoder(Mnemonifier mnemonifier, boolean strict) {
+		this.mnemonifier = mnemonifier;
+		this.strict = strict;
+	}
+
+	/**
+	 * Decode the next chunk of input.
+	 *
+	 * @param chunk
+	 *            next part of the mnemonified text
+	 * @param out
+	 *            string builder to append decoded text to
+	 * @throws IllegalArgumentException
+	 *             if strict decoding rules are used and the input is invalid
+	 *             (in which case the decoder must not be used any more)
+	 */
+	public void decode(CharSequence chunk, StringBuilder out) {
+		decode(chunk, false, out);
+	}
+
+	/**
+	 * Finish decoding, by decoding an incomplete token at the end of the
+	 * input.
+	 *
+	 * @param out
+	 *            string builder to append decoded text to
+	 * @throws IllegalArgumentException
+	 *             if strict decoding rules are used and the input ends with an
+	 *             incomplete token
+	 */
+	public void finish(StringBuilder out) {
+		decode("", true, out);
+		position = 0;
+	}
+
+	private void decode(CharSequence chunk, boolean endOfInput, StringBuilder out) {
+		CharSequence input = chunk;
+		if (pending.length() > 0) {
+			pending.append(chunk);
+			input = pending;
+		}
+		int end = input.length();
+		int decoded = 0;
+		while (true) {
+			decoded = mnemonifier.unmnemonify(input, decoded, end, end, endOfInput, strict, out);
+			if (decoded < 0)
+				throw new IllegalArgumentException("Invalid input at offset " + (position - 1 - decoded));
+			if (end - decoded <= MAX_PENDING)
+				break;
+			// incomplete token too long
+			if (strict)
+				throw new IllegalArgumentException("Token too long at offset " + (position + decoded));
+			out.append('[');
+			decoded++;
+		}
+		position += decoded;
+		if (input == pending) {
+			pending.delete(0, decoded);
+		} else {
+			pending.append(chunk, decoded, end);
+		}
+	}
+}
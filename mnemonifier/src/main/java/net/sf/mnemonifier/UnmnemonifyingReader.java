@@ -0,0 +1,153 @@
+package net.sf.mnemonifier;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Reader that unmnemonifies all characters read from an underlying reader.
+ *
+ * <p>
+ * Input is decoded on the fly using a buffer of bounded size, so that
+ * arbitrarily large inputs can be converted in constant memory. Tokens may be
+ * split across calls to {@code read} of the underlying reader. Tokens that do
+ * not fit into the buffer (which can only happen for codepoint information
+ * longer than the buffer) are treated as invalid.
+ *
+ * @author Michael Schierl {@code <schierlm@gmx.de>}
+ */
+public class UnmnemonifyingReader extends Reader {
+
+	private final Reader in;
+	private final Mnemonifier mnemonifier;
+	private final boolean strict;
+	private final char[] inputBuffer;
+	private final CharBuffer inputSequence;
+	private final StringBuilder outputBuffer = new StringBuilder();
+	private int inputStart = 0, inputEnd = 0, outputStart = 0;
+	private long inputOffset = 0;
+	private boolean endOfInput = false, closed = false;
+
+	/**
+	 * Create a new unmnemonifying reader with default buffer size that uses
+	 * lax decoding rules.
+	 *
+	 * @param in
+	 *            underlying reader
+	 * @param mnemonifier
+	 *            mnemonifier to use for decoding
+	 */
+	public UnmnemonifyingReader(Reader in, Mnemonifier mnemonifier) {
+		this(in, mnemonifier, false);
+	}
+
+	/**
+	 * Create a new unmnemonifying reader with default buffer size.
+	 *
+	 * @param in
+	 *            underlying reader
+	 * @param mnemonifier
+	 *            mnemonifier to use for decoding
+	 * @param strict
+	 *            whether to use strict decoding rules
+	 */
+	public UnmnemonifyingReader(Reader in, Mnemonifier mnemonifier, boolean strict) {
+		this(in, mnemonifier, strict, 8192);
+	}
+
+	/**
+	 * Create a new unmnemonifying reader.
+	 *
+	 * @param in
+	 *            underlying reader
+	 * @param mnemonifier
+	 *            mnemonifier to use for decoding
+	 * @param strict
+	 *            whether to use strict decoding rules
+	 * @param bufferSize
+	 *            size of the input buffer
+	 */
+	public UnmnemonifyingReader(Reader in, Mnemonifier mnemonifier, boolean strict, int bufferSize) {
+		if (bufferSize <= 0)
+			throw new IllegalArgumentException("Buffer size <= 0");
+		this.in = in;
+		this.mnemonifier = mnemonifier;
+		this.strict = strict;
+		this.inputBuffer = new char[bufferSize];
+		this.inputSequence = CharBuffer.wrap(inputBuffer);
+	}
+
+	/**
+	 * Read characters into a portion of an array.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if strict decoding rules are used and the input is invalid,
+	 *             or the input contains a codepoint that is out of range; the
+	 *             message contains the offset of the invalid token in the
+	 *             underlying reader
+	 */
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (closed)
+			throw new IOException("Stream closed");
+		if (len == 0)
+			return 0;
+		if (outputStart == outputBuffer.length() && !fillOutput())
+			return -1;
+		int count = Math.min(len, outputBuffer.length() - outputStart);
+		outputBuffer.getChars(outputStart, outputStart + count, cbuf, off);
+		outputStart += count;
+		return count;
+	}
+
+	private boolean fillOutput() throws IOException {
+		outputBuffer.setLength(0);
+		outputStart = 0;
+		while (outputBuffer.length() == 0) {
+			if (inputStart == inputEnd && endOfInput)
+				return false;
+			if (!endOfInput) {
+				if (inputStart > 0) {
+					System.arraycopy(inputBuffer, inputStart, inputBuffer, 0, inputEnd - inputStart);
+					inputEnd -= inputStart;
+					inputOffset += inputStart;
+					inputStart = 0;
+				}
+				if (inputEnd < inputBuffer.length) {
+					int count = in.read(inputBuffer, inputEnd, inputBuffer.length - inputEnd);
+					if (count == -1)
+						endOfInput = true;
+					else
+						inputEnd += count;
+				}
+			}
+			int decoded = mnemonifier.unmnemonify(inputSequence, inputStart, inputEnd, inputEnd, endOfInput, strict, outputBuffer);
+			if (decoded < 0)
+				throw new IllegalArgumentException("Invalid input at offset " + (inputOffset - 1 - decoded));
+			if (decoded == inputStart && inputStart == 0 && inputEnd == inputBuffer.length) {
+				// token does not fit into the buffer
+				if (strict)
+					throw new IllegalArgumentException("Invalid input at offset " + inputOffset);
+				outputBuffer.append('[');
+				decoded++;
+			}
+			inputStart = decoded;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean ready() throws IOException {
+		if (closed)
+			throw new IOException("Stream closed");
+		return outputStart < outputBuffer.length();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		in.close();
+	}
+}
@@ -0,0 +1,46 @@
+package net.sf.mnemonifier;
+
+import java.nio.ByteBuffer;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class AsciiScannerTest {
+
+	private byte[] bytes;
+
+	@Before
+	public void setUp() {
+		bytes = new byte[40];
+	}
+
+	@Test
+	public void testAllBytes() {
+		for (int value = 0; value < 256; value++) {
+			boolean plain = value < 128 && value != '[' && value != ']';
+			boolean bracket = value == '[', anyBracket = bracket || value == ']';
+			for (int pos = 0; pos < 24; pos++) {
+				for (int i = 0; i < bytes.length; i++) {
+					// bytes next to the candidate that may confuse the word test
+					bytes[i] = (byte) (i == pos - 1 ? '[' - 1 : i == pos + 1 ? '[' + 1 : 'Z');
+				}
+				bytes[pos] = (byte) value;
+				for (int start = 0; start <= pos; start += 3) {
+					for (int end = pos; end <= pos + 9; end += 3) {
+						ByteBuffer buffer = ByteBuffer.wrap(bytes);
+						String chars = new String(bytes, 0, 0, bytes.length);
+						int expected = end > pos && plain ? end : pos;
+						Assert.assertEquals(expected, AsciiScanner.skipPlain(buffer, start, end));
+						Assert.assertEquals(expected, AsciiScanner.skipPlain(chars, start, end));
+						expected = end > pos && !bracket ? end : pos;
+						Assert.assertEquals(expected, AsciiScanner.findBracket(buffer, start, end, false));
+						Assert.assertEquals(expected, AsciiScanner.findBracket(chars, start, end, false));
+						expected = end > pos && !anyBracket ? end : pos;
+						Assert.assertEquals(expected, AsciiScanner.findBracket(buffer, start, end, true));
+						Assert.assertEquals(expected, AsciiScanner.findBracket(chars, start, end, true));
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package net.sf.mnemonifier;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class CachingMnemonifierTest {
+
+	private CachingMnemonifier instance;
+
+	@Before
+	public void setUp() {
+		instance = new CachingMnemonifier(new Mnemonifier(), 1600);
+	}
+
+	@Test
+	public void testCache() {
+		Mnemonifier plain = new Mnemonifier();
+		Assert.assertEquals(plain.mnemonify("Für [x]"), instance.mnemonify("Für [x]"));
+		Assert.assertEquals(0, instance.getHitCount());
+		Assert.assertEquals(1, instance.getMissCount());
+		Assert.assertEquals(plain.mnemonify("Für [x]"), instance.mnemonify("Für [x]"));
+		Assert.assertEquals(1, instance.getHitCount());
+		Assert.assertEquals(1, instance.getMissCount());
+		Assert.assertEquals("Für [x]", instance.unmnemonify(plain.mnemonify("Für [x]")));
+		Assert.assertEquals("Für [x]", instance.unmnemonify(plain.mnemonify("Für [x]"), true));
+		Assert.assertEquals("Für [x]", instance.unmnemonify(plain.mnemonify("Für [x]")));
+		Assert.assertEquals(2, instance.getHitCount());
+		Assert.assertEquals(3, instance.getMissCount());
+		Assert.assertEquals(3 * ("Für [x]".length() + plain.mnemonify("Für [x]").length()), instance.getWeight());
+		instance.clear();
+		Assert.assertEquals(0, instance.getWeight());
+		Assert.assertEquals(plain.mnemonify("Für [x]"), instance.mnemonify("Für [x]"));
+		Assert.assertEquals(4, instance.getMissCount());
+	}
+
+	@Test
+	public void testPlainNotCached() {
+		Assert.assertEquals("Hello", instance.mnemonify("Hello"));
+		Assert.assertEquals("Hello", instance.unmnemonify("Hello"));
+		Assert.assertEquals(0, instance.getHitCount());
+		Assert.assertEquals(0, instance.getMissCount());
+		Assert.assertEquals(0, instance.getWeight());
+	}
+
+	@Test
+	public void testInvalidNotCached() {
+		for (int i = 0; i < 2; i++) {
+			try {
+				instance.unmnemonify("[invalid]", true);
+				Assert.fail();
+			} catch (IllegalArgumentException ex) {
+			}
+		}
+		Assert.assertEquals(0, instance.getHitCount());
+		Assert.assertEquals(2, instance.getMissCount());
+		Assert.assertEquals(0, instance.getWeight());
+	}
+
+	@Test
+	public void testEviction() {
+		for (int i = 0; i < 1000; i++) {
+			String input = "Entry " + i + " €";
+			Assert.assertEquals(new Mnemonifier().mnemonify(input), instance.mnemonify(input));
+			Assert.assertTrue(instance.getWeight() <= 1600);
+		}
+		Assert.assertTrue(instance.getWeight() > 0);
+		instance.mnemonify("Entry 999 €");
+		Assert.assertEquals(1, instance.getHitCount());
+		Assert.assertEquals("Too long €", instance.unmnemonify(instance.mnemonify("Too long €")));
+		StringBuilder tooLong = new StringBuilder();
+		for (int i = 0; i < 300; i++) {
+			tooLong.append('€');
+		}
+		instance.clear();
+		instance.mnemonify(tooLong.toString());
+		Assert.assertEquals(0, instance.getWeight());
+	}
+
+	@Test
+	public void testLargeEntry() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 50; i++) {
+			sb.append('€');
+		}
+		String input = sb.toString();
+		String encoded = instance.mnemonify(input);
+		Assert.assertTrue(input.length() + encoded.length() > 1600 / 16);
+		Assert.assertEquals(input.length() + encoded.length(), instance.getWeight());
+		Assert.assertEquals(encoded, instance.mnemonify(input));
+		Assert.assertEquals(1, instance.getHitCount());
+	}
+
+	@Test
+	public void testDecodeBudget() {
+		for (int i = 0; i < 1000; i++) {
+			String encoded = instance.mnemonify("Entry " + i + " €");
+			instance.unmnemonify(encoded, i % 2 == 0);
+			instance.unmnemonify(encoded, i % 2 != 0);
+			Assert.assertTrue(instance.getWeight() <= 2 * 1600);
+		}
+		instance.clear();
+		for (int i = 0; i < 1000; i++) {
+			String encoded = new Mnemonifier().mnemonify("Entry " + i + " €");
+			instance.unmnemonify(encoded, i % 2 == 0);
+			instance.unmnemonify(encoded, i % 2 != 0);
+			Assert.assertTrue(instance.getWeight() <= 1600);
+		}
+		Assert.assertTrue(instance.getWeight() > 1600 - 100);
+	}
+
+	@Test
+	public void testCodepointInfo() throws Exception {
+		CachingMnemonifier caching = new CachingMnemonifier(new Mnemonifier() {
+			@Override
+			protected String getCodepointInfo(int codepoint) {
+				return "info";
+			}
+		}, 1600);
+		Assert.assertEquals("[#4E2D{info}]", caching.mnemonify("中"));
+		Assert.assertEquals("[#4E2D{info}]", new String(caching.mnemonifyUTF8("中".getBytes("UTF-8")), "UTF-8"));
+	}
+}
@@ -0,0 +1,81 @@
+package net.sf.mnemonifier;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class MnemonicTableTest {
+
+	private Map<Character, String> mnemonics;
+
+	@Before
+	public void setUp() {
+		mnemonics = new HashMap<Character, String>(MnemonicTable.getDefault().toMap());
+	}
+
+	@Test
+	public void testDefault() {
+		Assert.assertEquals("a!", MnemonicTable.getDefault().getMnemonic('à'));
+		Assert.assertNull(MnemonicTable.getDefault().getMnemonic('€'));
+		Assert.assertEquals("a!", mnemonics.get('à'));
+		Assert.assertSame(MnemonicTable.getDefault(), new Mnemonifier().getTable());
+	}
+
+	@Test
+	public void testExtended() {
+		mnemonics.put('€', "EUR");
+		MnemonicTable table = MnemonicTable.create(mnemonics);
+		Mnemonifier extended = new Mnemonifier(table), original = new Mnemonifier();
+		Assert.assertEquals("[EUR] [a!]", extended.mnemonify("€ à"));
+		Assert.assertEquals("€ à", extended.unmnemonify("[EUR] [a!]", true));
+		Assert.assertEquals("[#20AC] [a!]", original.mnemonify("€ à"));
+		Assert.assertEquals("[EUR] à", original.unmnemonify("[EUR] [a!]", false));
+		Assert.assertEquals(mnemonics, table.toMap());
+	}
+
+	@Test
+	public void testReplaced() {
+		mnemonics.clear();
+		mnemonics.put('à', "grave-a");
+		Mnemonifier m = new Mnemonifier(MnemonicTable.create(mnemonics));
+		Assert.assertEquals("[grave-a][#E1]", m.mnemonify("àá"));
+		Assert.assertEquals("à[a!]", m.unmnemonify("[grave-a][a!]", false));
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		MnemonicTable table = MnemonicTable.create(new HashMap<Character, String>());
+		Mnemonifier m = new Mnemonifier(table);
+		Assert.assertEquals("[#E0][[]x[]][#20AC]", m.mnemonify("à[x]€"));
+		Assert.assertEquals("à[x]€", m.unmnemonify("[#E0][[]x[]][#20AC]", true));
+		Assert.assertEquals("[a!]", m.unmnemonify("[a!]", false));
+		Assert.assertArrayEquals("[#E0]".getBytes("UTF-8"), m.mnemonifyUTF8("à".getBytes("UTF-8")));
+		Assert.assertTrue(table.toMap().isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicate() {
+		mnemonics.put('€', "a!");
+		MnemonicTable.create(mnemonics);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMnemonic() {
+		mnemonics.put('€', "E]");
+		MnemonicTable.create(mnemonics);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHexMnemonic() {
+		mnemonics.put('€', "#E");
+		MnemonicTable.create(mnemonics);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAsciiCharacter() {
+		mnemonics.put('a', "aa");
+		MnemonicTable.create(mnemonics);
+	}
+}
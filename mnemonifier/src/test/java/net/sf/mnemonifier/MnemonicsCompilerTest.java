@@ -0,0 +1,76 @@
+package net.sf.mnemonifier;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class MnemonicsCompilerTest {
+
+	private String[][] forwardMap;
+	private Map<String, Character> reverseMap;
+	private File compiledFile;
+
+	@Before
+	public void setUp() throws IOException {
+		forwardMap = new String[256][];
+		reverseMap = new HashMap<String, Character>();
+		InputStreamReader r = new InputStreamReader(Mnemonifier.class.getResourceAsStream("mnemonics.dat"), "UTF-8");
+		Mnemonifier.parseMnemonicsMap(r, forwardMap, reverseMap);
+		r.close();
+		File textFile = File.createTempFile("mnemonics", ".dat");
+		textFile.deleteOnExit();
+		InputStream in = Mnemonifier.class.getResourceAsStream("mnemonics.dat");
+		FileOutputStream out = new FileOutputStream(textFile);
+		byte[] buffer = new byte[4096];
+		int len;
+		while ((len = in.read(buffer)) != -1) {
+			out.write(buffer, 0, len);
+		}
+		in.close();
+		out.close();
+		compiledFile = File.createTempFile("mnemonics", ".bin");
+		compiledFile.deleteOnExit();
+		MnemonicsCompiler.main(new String[] { textFile.getPath(), compiledFile.getPath() });
+	}
+
+	@Test
+	public void testForwardTable() throws IOException {
+		ForwardTable expected = new ForwardTable(forwardMap);
+		ForwardTable actual = new ForwardTable(MnemonicsCompiler.read(new FileInputStream(compiledFile), false));
+		for (int i = 128; i <= Character.MAX_VALUE; i++) {
+			StringBuilder sbExpected = new StringBuilder(), sbActual = new StringBuilder();
+			Assert.assertEquals(expected.append(sbExpected, (char) i), actual.append(sbActual, (char) i));
+			Assert.assertEquals(sbExpected.toString(), sbActual.toString());
+		}
+	}
+
+	@Test
+	public void testReverseTrie() throws IOException {
+		ByteBuffer buffer = MnemonicsCompiler.read(new FileInputStream(compiledFile), true);
+		MnemonicTrie trie = new MnemonicTrie(buffer);
+		Assert.assertFalse(buffer.hasRemaining());
+		for (Map.Entry<String, Character> entry : reverseMap.entrySet()) {
+			int node = MnemonicTrie.ROOT;
+			for (int i = 0; i < entry.getKey().length(); i++) {
+				node = trie.next(node, entry.getKey().charAt(i));
+				Assert.assertTrue(node != -1);
+			}
+			Assert.assertEquals((char) entry.getValue(), trie.value(node));
+		}
+		Assert.assertEquals(-1, trie.next(MnemonicTrie.ROOT, '#'));
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidFile() throws IOException {
+		MnemonicsCompiler.read(Mnemonifier.class.getResourceAsStream("mnemonics.dat"), false);
+	}
+}
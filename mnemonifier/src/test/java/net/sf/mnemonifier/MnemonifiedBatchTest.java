@@ -0,0 +1,74 @@
+package net.sf.mnemonifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class MnemonifiedBatchTest {
+
+	private Mnemonifier instance;
+
+	@Before
+	public void setUp() {
+		instance = new Mnemonifier();
+	}
+
+	@Test
+	public void testBatch() throws Exception {
+		List<CharSequence> inputs = Arrays.<CharSequence> asList("Hello", "", "Für [x]", new StringBuilder("€𝄞"), "plain", new StringBuilder("also plain"));
+		MnemonifiedBatch batch = instance.mnemonifyBatch(inputs);
+		Assert.assertEquals(inputs.size(), batch.size());
+		StringBuilder all = new StringBuilder();
+		for (int i = 0; i < inputs.size(); i++) {
+			String expected = instance.mnemonify(inputs.get(i).toString());
+			Assert.assertEquals(expected, batch.get(i));
+			Assert.assertEquals(all.length(), batch.getOffsets()[i]);
+			all.append(expected);
+		}
+		Assert.assertEquals(all.length(), batch.getOffsets()[inputs.size()]);
+		Assert.assertEquals(all.toString(), new String(batch.getData()));
+		Assert.assertEquals(all.toString(), new String(batch.toASCIIBytes(), "ISO-8859-1"));
+		Assert.assertEquals(0, instance.mnemonifyBatch(new ArrayList<String>()).size());
+	}
+
+	@Test
+	public void testCompactWithInfo() {
+		Mnemonifier compact = new Mnemonifier(MnemonicTable.getDefault(), true) {
+			@Override
+			protected String getCodepointInfo(int codepoint) {
+				return codepoint == 0x20AC ? "EUR" : null;
+			}
+		};
+		List<String> inputs = Arrays.asList("€𝄞₹ä", "x\uD834", "[€]");
+		MnemonifiedBatch batch = compact.mnemonifyBatch(inputs);
+		StringBuilder all = new StringBuilder();
+		for (int i = 0; i < inputs.size(); i++) {
+			Assert.assertEquals(compact.mnemonify(inputs.get(i)), batch.get(i));
+			all.append(batch.get(i));
+		}
+		Assert.assertEquals(all.toString(), new String(batch.getData()));
+	}
+
+	@Test
+	public void testParallel() {
+		List<String> inputs = new ArrayList<String>();
+		for (int i = 0; i < 1000; i++) {
+			inputs.add(i % 3 == 0 ? "Name " + i : "Größe " + i + " €");
+		}
+		MnemonifiedBatch expected = instance.mnemonifyBatch(inputs);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int chunkSize : new int[] { 1, 7, 100, 100000 }) {
+				MnemonifiedBatch batch = new ParallelMnemonifier(instance, pool, chunkSize).mnemonifyBatch(inputs);
+				Assert.assertArrayEquals(expected.getData(), batch.getData());
+				Assert.assertArrayEquals(expected.getOffsets(), batch.getOffsets());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package net.sf.mnemonifier;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class MnemonifiedCharsetTest {
+
+	private Mnemonifier instance;
+	private Charset lax, strict;
+
+	@Before
+	public void setUp() {
+		instance = new Mnemonifier();
+		lax = Charset.forName("X-MNEMONIFIED");
+		strict = Charset.forName("x-mnemonified-strict");
+	}
+
+	@Test
+	public void testSimple() throws IOException {
+		testSingle("Hello", "Hello");
+		testSingle("Für Elisè", "F[u:]r Elis[e!]");
+		testSingle("[x]", "[[]x[]]");
+		testSingle("€𝄞₹", "[#20AC][#1D11E][#20B9]");
+		testSingle("́Ѐ", "[|'][E=|!]");
+		testSingle("lone\ud834", "lone[#D834]");
+	}
+
+	@Test
+	public void testLaxDecoding() throws IOException {
+		Assert.assertEquals("]][[Hello][#q][", decode("]][[Hello][#q][", lax));
+		Assert.assertEquals("€[[", decode("[#20ac][[", lax));
+		Assert.assertEquals("[#110000]ä", decode("[#110000]ä", lax));
+		for (int i = 0; i < 8; i++) {
+			Assert.assertEquals("[#123{4}".substring(0, i), decode("[#123{4}".substring(0, i), lax));
+		}
+	}
+
+	@Test(expected = CharacterCodingException.class)
+	public void testStrictDecoding1() throws IOException {
+		strict.newDecoder().decode(ByteBuffer.wrap("]][[Hello][#q][".getBytes("ISO-8859-1")));
+	}
+
+	@Test(expected = CharacterCodingException.class)
+	public void testStrictDecoding2() throws IOException {
+		strict.newDecoder().decode(ByteBuffer.wrap("Hi[".getBytes("ISO-8859-1")));
+	}
+
+	@Test
+	public void testStrictReplacement() throws IOException {
+		Assert.assertEquals("Lo�vely", new String("Lo]vely".getBytes("ISO-8859-1"), strict));
+	}
+
+	@Test
+	public void testRoundtripSurrogates() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i <= Character.MAX_CODE_POINT; i += 3) {
+			if (Character.isDefined(i))
+				sb.appendCodePoint(i);
+		}
+		String input = sb.toString();
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		Writer w = new OutputStreamWriter(baos, lax);
+		w.write(input);
+		w.close();
+		Assert.assertEquals(instance.mnemonify(input), new String(baos.toByteArray(), "ISO-8859-1"));
+		for (Charset charset : new Charset[] { lax, strict }) {
+			Reader r = new InputStreamReader(new ChunkedInputStream(baos.toByteArray()), charset);
+			StringBuilder decoded = new StringBuilder();
+			char[] buf = new char[7];
+			int len;
+			while ((len = r.read(buf)) != -1) {
+				decoded.append(buf, 0, len);
+			}
+			r.close();
+			Assert.assertEquals(input, decoded.toString());
+		}
+	}
+
+	@Test
+	public void testCompact() throws IOException {
+		Mnemonifier compact = new Mnemonifier(MnemonicTable.getDefault(), true);
+		String input = "中文 x€ 𝄞😀ä€₹[中]\ud834";
+		String encoded = compact.mnemonify(input);
+		Assert.assertEquals(encoded, new String(input.getBytes(new MnemonifiedCharset(compact, false)), "ISO-8859-1"));
+		for (Charset charset : new Charset[] { lax, strict }) {
+			Reader r = new InputStreamReader(new ChunkedInputStream(encoded.getBytes("ISO-8859-1")), charset);
+			StringBuilder decoded = new StringBuilder();
+			char[] buf = new char[3];
+			int len;
+			while ((len = r.read(buf)) != -1) {
+				decoded.append(buf, 0, len);
+			}
+			r.close();
+			Assert.assertEquals(input, decoded.toString());
+		}
+		Assert.assertEquals("[#20AC,]€", decode("[#20AC,][#20AC]", lax));
+	}
+
+	@Test
+	public void testLongTokens() throws IOException {
+		Map<Character, String> mnemonics = new HashMap<Character, String>(MnemonicTable.getDefault().toMap());
+		mnemonics.put('€', "Euro-sign-with-a-very-long-mnemonic");
+		Mnemonifier custom = new Mnemonifier(MnemonicTable.create(mnemonics));
+		Mnemonifier info = new Mnemonifier() {
+			@Override
+			protected String getCodepointInfo(int codepoint) {
+				return "information-that-is-rather-long";
+			}
+
+			@Override
+			protected int getMaxCodepointInfoLength() {
+				return 31;
+			}
+		};
+		for (Mnemonifier mnemonifier : new Mnemonifier[] { custom, info }) {
+			Charset charset = new MnemonifiedCharset(mnemonifier, false);
+			for (String input : new String[] { "€", "中", "x€€y", "𝄞" }) {
+				String encoded = mnemonifier.mnemonify(input);
+				Assert.assertEquals(encoded, new String(input.getBytes(charset), "ISO-8859-1"));
+				// tokens are split across tiny output buffers
+				CharsetEncoder encoder = charset.newEncoder();
+				CharBuffer in = CharBuffer.wrap(input);
+				ByteBuffer out = ByteBuffer.allocate(3);
+				StringBuilder result = new StringBuilder();
+				CoderResult cr;
+				do {
+					cr = encoder.encode(in, out, true);
+					drain(out, result);
+				} while (cr.isOverflow());
+				do {
+					cr = encoder.flush(out);
+					drain(out, result);
+				} while (cr.isOverflow());
+				Assert.assertEquals(encoded, result.toString());
+			}
+		}
+	}
+
+	private static void drain(ByteBuffer out, StringBuilder result) {
+		out.flip();
+		while (out.hasRemaining()) {
+			result.append((char) out.get());
+		}
+		out.clear();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnlimitedInfo() {
+		new MnemonifiedCharset(new Mnemonifier() {
+			@Override
+			protected String getCodepointInfo(int codepoint) {
+				return "info";
+			}
+		}, false);
+	}
+
+	private void testSingle(String input, String encoded) throws IOException {
+		Assert.assertEquals(encoded, new String(input.getBytes(lax), "ISO-8859-1"));
+		Assert.assertEquals(input, decode(encoded, lax));
+		Assert.assertEquals(input, decode(encoded, strict));
+	}
+
+	private String decode(String encoded, Charset charset) throws IOException {
+		return charset.newDecoder().decode(ByteBuffer.wrap(encoded.getBytes("ISO-8859-1"))).toString();
+	}
+
+	private static class ChunkedInputStream extends ByteArrayInputStream {
+		private ChunkedInputStream(byte[] buf) {
+			super(buf);
+		}
+
+		@Override
+		public synchronized int read(byte[] b, int off, int len) {
+			return super.read(b, off, Math.min(len, 5));
+		}
+	}
+}
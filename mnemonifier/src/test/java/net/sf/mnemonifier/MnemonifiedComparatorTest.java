@@ -0,0 +1,102 @@
+package net.sf.mnemonifier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class MnemonifiedComparatorTest {
+
+	private Mnemonifier instance;
+	private MnemonifiedComparator comparator;
+
+	@Before
+	public void setUp() {
+		instance = new Mnemonifier();
+		comparator = new MnemonifiedComparator(instance);
+	}
+
+	@Test
+	public void testCompare() {
+		Assert.assertEquals(0, comparator.compare("[ss]", "[#DF]"));
+		Assert.assertEquals(0, comparator.compare("[#4E2D,6587]", "[#4E2D][#6587]"));
+		Assert.assertEquals(0, comparator.compare("[#20ac{x}][", "€["));
+		Assert.assertTrue(comparator.compare("[ss]", "[#E0]") < 0);
+		Assert.assertTrue(comparator.compare("[#4E2D,6587]", "[#4E2D]") > 0);
+		Assert.assertTrue(comparator.compare("[#FFFF]", "[#10000]") < 0);
+		Assert.assertTrue(comparator.compare("￿", "𐀀") < 0);
+		Assert.assertTrue(comparator.compare("a[[]", "a[]]") < 0);
+		Assert.assertEquals(0, comparator.compare("[#D834][#DD1E]", "[#1D11E]"));
+		Assert.assertEquals(0, comparator.compare("[#D834,DD1E]", "𝄞"));
+		Assert.assertEquals(0, comparator.compare("\ud834[#DD1E]x", "[#D834]\udd1ex"));
+		Assert.assertTrue(comparator.compare("[#D834][#DD1E]", "[#FFFF]") > 0);
+		Assert.assertTrue(comparator.compare("[#D834]", "[#1D11E]") < 0);
+		Assert.assertEquals(comparator.hash("[#1D11E]"), comparator.hash("[#D834][#DD1E]"));
+		Assert.assertTrue(comparator.equal("", ""));
+		Assert.assertFalse(comparator.equal("a", ""));
+		Assert.assertEquals("ß[a]".hashCode(), comparator.hash("[ss][[]a[]]"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOutOfRange() {
+		comparator.compare("[#110000]", "x");
+	}
+
+	@Test
+	public void testRandom() {
+		String[] pieces = { "a", "b", "[", "]", "ß", "€", "中", "文", "𝄞", "￿", "\ud800", "\ud834", "\udd1e" };
+		Mnemonifier compact = new Mnemonifier(instance.getTable(), true);
+		Random random = new Random(42);
+		List<String> originals = new ArrayList<String>();
+		List<String> encoded = new ArrayList<String>();
+		for (int i = 0; i < 500; i++) {
+			StringBuilder sb = new StringBuilder();
+			int length = random.nextInt(6);
+			for (int j = 0; j < length; j++) {
+				sb.append(pieces[random.nextInt(pieces.length)]);
+			}
+			String original = sb.toString();
+			originals.add(original);
+			encoded.add(i % 3 == 0 ? instance.mnemonify(original) : i % 3 == 1 ? compact.mnemonify(original) : splitSurrogates(original));
+		}
+		for (int i = 0; i < originals.size(); i++) {
+			Assert.assertEquals(originals.get(i).hashCode(), comparator.hash(encoded.get(i)));
+			for (int j = 0; j < originals.size(); j++) {
+				int expected = Integer.signum(compareCodepoints(originals.get(i), originals.get(j)));
+				Assert.assertEquals(expected, Integer.signum(comparator.compare(encoded.get(i), encoded.get(j))));
+			}
+		}
+		Collections.sort(encoded, comparator);
+		for (int i = 1; i < encoded.size(); i++) {
+			Assert.assertTrue(compareCodepoints(instance.unmnemonify(encoded.get(i - 1)), instance.unmnemonify(encoded.get(i))) <= 0);
+		}
+	}
+
+	/**
+	 * Mnemonify every char on its own, so that surrogate pairs are encoded
+	 * as two hex codes.
+	 */
+	private String splitSurrogates(String original) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < original.length(); i++) {
+			char c = original.charAt(i);
+			sb.append(Character.isHighSurrogate(c) || Character.isLowSurrogate(c) ? "[#" + Integer.toHexString(c).toUpperCase() + "]" : instance.mnemonify(String.valueOf(c)));
+		}
+		return sb.toString();
+	}
+
+	private static int compareCodepoints(String first, String second) {
+		int i = 0, j = 0;
+		while (i < first.length() && j < second.length()) {
+			int c1 = first.codePointAt(i), c2 = second.codePointAt(j);
+			if (c1 != c2)
+				return c1 - c2;
+			i += Character.charCount(c1);
+			j += Character.charCount(c2);
+		}
+		return (first.length() - i) - (second.length() - j);
+	}
+}
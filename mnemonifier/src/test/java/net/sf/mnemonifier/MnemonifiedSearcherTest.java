@@ -0,0 +1,75 @@
+package net.sf.mnemonifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class MnemonifiedSearcherTest {
+
+	private Mnemonifier instance;
+
+	@Before
+	public void setUp() {
+		instance = new Mnemonifier();
+	}
+
+	@Test
+	public void testEncodings() {
+		Assert.assertEquals("[0-4] -> [0-1]", new MnemonifiedSearcher(instance, "ß").find("[ss] [#DF] [#df{x}] ß").toString());
+		Assert.assertEquals(4, new MnemonifiedSearcher(instance, "ß").findAll("[ss] [#DF] [#df{x}] ß").size());
+		Assert.assertEquals("[3-15] -> [4-5]", new MnemonifiedSearcher(instance, "文").find("ab [#4E2D,6587]").toString());
+		Assert.assertEquals("[3-15] -> [3-5]", new MnemonifiedSearcher(instance, "中文").find("ab [#4E2D,6587]").toString());
+		Assert.assertEquals("[1-5] -> [1-3]", new MnemonifiedSearcher(instance, "[b").find("a[[]b [b").toString());
+		Assert.assertEquals("[6-8] -> [4-6]", new MnemonifiedSearcher(instance, "[b").findAll("a[[]b [b").get(1).toString());
+		Assert.assertNull(new MnemonifiedSearcher(instance, "4E2D").find("[#4E2D] [#4E2D,6587]"));
+		Assert.assertNull(new MnemonifiedSearcher(instance, "ss").find("[ss]"));
+		Assert.assertEquals("[1-9] -> [1-3]", new MnemonifiedSearcher(instance, "𝄞").find("x[#1D11E]").toString());
+	}
+
+	@Test
+	public void testRandom() {
+		String[] pieces = { "a", "b", "[", "]", "ß", "€", "中", "文", "𝄞", "\ud800" };
+		Mnemonifier compact = new Mnemonifier(instance.getTable(), true);
+		Random random = new Random(42);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			sb.append(pieces[random.nextInt(pieces.length)]);
+		}
+		String original = sb.toString();
+		for (String pattern : new String[] { "a", "ab", "[a", "]]", "中文", "文a", "€𝄞", "ß[", "\ud800" }) {
+			List<Long> expected = new ArrayList<Long>();
+			for (int i = original.indexOf(pattern); i != -1; i = original.indexOf(pattern, i + pattern.length())) {
+				expected.add((long) i);
+			}
+			for (Mnemonifier m : new Mnemonifier[] { instance, compact }) {
+				String encoded = m.mnemonify(original);
+				MnemonifiedSearcher searcher = new MnemonifiedSearcher(m, pattern);
+				List<MnemonifiedMatch> matches = searcher.findAll(encoded);
+				assertMatches(expected, matches, encoded, pattern);
+				for (int chunkSize = 1; chunkSize < 30; chunkSize += 7) {
+					List<MnemonifiedMatch> streamed = new ArrayList<MnemonifiedMatch>();
+					for (int i = 0; i < encoded.length(); i += chunkSize) {
+						int end = Math.min(i + chunkSize, encoded.length());
+						streamed.addAll(searcher.feed(new StringBuilder(encoded.substring(i, end)), end == encoded.length()));
+					}
+					Assert.assertEquals(matches.toString(), streamed.toString());
+				}
+			}
+		}
+	}
+
+	private void assertMatches(List<Long> expected, List<MnemonifiedMatch> matches, String encoded, String pattern) {
+		Assert.assertEquals(expected.size(), matches.size());
+		for (int i = 0; i < matches.size(); i++) {
+			MnemonifiedMatch match = matches.get(i);
+			Assert.assertEquals(expected.get(i).longValue(), match.getDecodedStart());
+			Assert.assertEquals(expected.get(i) + pattern.length(), match.getDecodedEnd());
+			String token = instance.unmnemonify(encoded.substring((int) match.getEncodedStart(), (int) match.getEncodedEnd()));
+			int prefixLength = instance.unmnemonify(encoded.substring(0, (int) match.getEncodedStart())).length();
+			Assert.assertTrue(token.startsWith(pattern, (int) match.getDecodedStart() - prefixLength));
+		}
+	}
+}
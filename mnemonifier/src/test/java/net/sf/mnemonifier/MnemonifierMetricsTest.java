@@ -0,0 +1,92 @@
+package net.sf.mnemonifier;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class MnemonifierMetricsTest {
+
+	private MnemonifierMetrics metrics;
+	private Mnemonifier instance;
+
+	@Before
+	public void setUp() {
+		metrics = new MnemonifierMetrics(100);
+		instance = new Mnemonifier(MnemonicTable.getDefault(), false, metrics);
+	}
+
+	@Test
+	public void testCounters() throws Exception {
+		Assert.assertEquals("Hello", instance.mnemonify("Hello"));
+		Assert.assertEquals("F[u:]r [[]x[]] [#20AC]", instance.mnemonify("Für [x] €"));
+		instance.mnemonifyUTF8("ä".getBytes("UTF-8"));
+		Assert.assertEquals(3, metrics.getEncodeCount());
+		Assert.assertEquals(1, metrics.getUnchangedEncodeCount());
+		Assert.assertEquals(5 + 9 + 2, metrics.getEncodeInputLength());
+		Assert.assertEquals(5 + 22 + 4, metrics.getEncodeOutputLength());
+		Assert.assertEquals(2, metrics.getMnemonicCount());
+		Assert.assertEquals(2, metrics.getEscapeCount());
+		Assert.assertEquals(1, metrics.getHexCount());
+		Assert.assertEquals(0, metrics.getCodepointInfoCount());
+		Assert.assertEquals(Arrays.toString(new long[] { 1, 0, 0, 0, 2, 0, 0 }), Arrays.toString(metrics.getExpansionHistogram()));
+
+		Assert.assertEquals("€", instance.unmnemonify("[#20AC]", true));
+		try {
+			instance.unmnemonify("]", true);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+		Assert.assertEquals(2, metrics.getDecodeCount());
+		Assert.assertEquals(1, metrics.getDecodeFailureCount());
+		Assert.assertEquals(8, metrics.getDecodeInputLength());
+		Assert.assertEquals(1, metrics.getDecodeOutputLength());
+
+		metrics.reset();
+		Assert.assertEquals(0, metrics.getEncodeCount());
+		Assert.assertEquals(0, metrics.getHexCount());
+	}
+
+	@Test
+	public void testCodepointInfo() {
+		Mnemonifier mm = new Mnemonifier(MnemonicTable.getDefault(), false, metrics) {
+			@Override
+			protected String getCodepointInfo(int codepoint) {
+				return codepoint == 0x20AC ? "EUR" : null;
+			}
+		};
+		Assert.assertEquals("[#20AC{EUR}][#20B9]", mm.mnemonify("€₹"));
+		Assert.assertEquals(2, metrics.getHexCount());
+		Assert.assertEquals(1, metrics.getCodepointInfoCount());
+	}
+
+	@Test
+	public void testStreaming() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		MnemonifyingEncoder encoder = new MnemonifyingEncoder(instance);
+		encoder.encode("ä€", sb);
+		Assert.assertEquals(1, metrics.getMnemonicCount());
+		Assert.assertEquals(1, metrics.getHexCount());
+		encoder.encode("[\uD834", sb);
+		Assert.assertEquals(1, metrics.getEscapeCount());
+		Assert.assertEquals(1, metrics.getHexCount());
+		encoder.finish(sb);
+		Assert.assertEquals(2, metrics.getHexCount());
+		StringWriter sw = new StringWriter();
+		Writer writer = new MnemonifyingWriter(sw, instance, 16);
+		writer.write("ö]");
+		Assert.assertEquals(2, metrics.getMnemonicCount());
+		Assert.assertEquals(2, metrics.getEscapeCount());
+		writer.close();
+		Assert.assertEquals(0, metrics.getEncodeCount());
+	}
+
+	@Test
+	public void testDisabled() {
+		Assert.assertNull(new Mnemonifier().getMetrics());
+		Assert.assertSame(metrics, instance.getMetrics());
+	}
+}
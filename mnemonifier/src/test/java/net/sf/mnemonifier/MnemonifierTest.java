@@ -2,6 +2,10 @@ package net.sf.mnemonifier;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CoderResult;
 
 import org.junit.*;
 
@@ -23,6 +27,7 @@ public class MnemonifierTest {
 		testSingle("\u20ac\u20b9", "[#20AC][#20B9]");
 		testSingle("\u20ac\ud834\udd1e\u20b9", "[#20AC][#1D11E][#20B9]");
 		testSingle("\u0301\u0400", "[|'][E=|!]");
+		testSingle("\u0080\u0fff\udbff\udfff", "[PA][#FFF][#10FFFF]");
 	}
 
 	@Test
@@ -64,6 +69,22 @@ public class MnemonifierTest {
 		Assert.fail();
 	}
 
+	@Test
+	public void testValidate() {
+		String[] inputs = { "]][[Hello][#q][", "[#20aC]", "Lo]vely", "[O:]rks]l", "Hi[", "ok [#20AC]]" };
+		int[] errorOffsets = { 0, 0, 2, 7, 2, 10 };
+		for (int i = 0; i < inputs.length; i++) {
+			Assert.assertEquals(errorOffsets[i], instance.validate(inputs[i]));
+			UnmnemonifyResult result = instance.tryUnmnemonify(inputs[i]);
+			Assert.assertFalse(result.isValid());
+			Assert.assertNull(result.getValue());
+			Assert.assertEquals(errorOffsets[i], result.getErrorOffset());
+		}
+		Assert.assertEquals(-1, instance.validate(""));
+		Assert.assertEquals(-1, instance.validate(new StringBuilder("Gr[o:]\u00dfe [[] []]")));
+		Assert.assertEquals("plain", instance.tryUnmnemonify("plain").getValue());
+	}
+
 	@Test
 	public void testRoundtrip() {
 		char[] chars = new char[65536];
@@ -92,9 +113,233 @@ public class MnemonifierTest {
 		Assert.assertEquals("\ud834\udd1e\u20ac", mm.unmnemonify("[#1D11E{::}][#20AC{:8364:}]", true));
 	}
 
+	@Test
+	public void testCompact() throws IOException {
+		Mnemonifier compact = new Mnemonifier(MnemonicTable.getDefault(), true);
+		Assert.assertTrue(compact.isCompact());
+		String input = "中文 x€ 𝄞😀ä€₹[中]";
+		String encoded = "[#4E2D,6587] x[#20AC] [#1D11E,1F600][a:][#20AC,20B9][[][#4E2D][]]";
+		Assert.assertEquals(encoded, compact.mnemonify(input));
+		Assert.assertArrayEquals(encoded.getBytes("UTF-8"), compact.mnemonifyUTF8(input.getBytes("UTF-8")));
+		Assert.assertEquals(input, instance.unmnemonify(encoded, true));
+		Assert.assertEquals(input, instance.unmnemonify(instance.mnemonify(input), true));
+		Assert.assertEquals(input, new String(instance.unmnemonifyUTF8(encoded.getBytes("UTF-8"), true), "UTF-8"));
+		Mnemonifier info = new Mnemonifier(MnemonicTable.getDefault(), true) {
+			@Override
+			protected String getCodepointInfo(int codepoint) {
+				return codepoint == 0x20AC ? "EUR" : null;
+			}
+		};
+		Assert.assertEquals("[#20B9,20AC{EUR},20B9]", info.mnemonify("₹€₹"));
+		Assert.assertEquals("₹€₹", instance.unmnemonify("[#20B9,20AC{EUR},20B9]", true));
+		Assert.assertEquals("€€₹", instance.unmnemonify("[#20AC][#20ac,20B9]", false));
+		Assert.assertEquals("[#20AC,][#20AC,x]", instance.unmnemonify("[#20AC,][#20AC,x]", false));
+		for (String invalid : new String[] { "[#20ac,20B9]", "[#20B9,020AC]", "[#20AC,]", "[#20AC,{x}]", "[#20AC,20B9" }) {
+			try {
+				instance.unmnemonify(invalid, true);
+				Assert.fail(invalid);
+			} catch (IllegalArgumentException ex) {
+				// expected
+			}
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i <= Character.MAX_CODE_POINT; i++) {
+			if (Character.isDefined(i) && Character.getType(i) != Character.SURROGATE)
+				sb.appendCodePoint(i);
+		}
+		input = sb.toString();
+		encoded = compact.mnemonify(input);
+		Assert.assertTrue(encoded.length() < instance.mnemonify(input).length());
+		Assert.assertEquals(input, instance.unmnemonify(encoded, true));
+		ByteBuffer out = ByteBuffer.allocate(encoded.length());
+		Assert.assertTrue(compact.mnemonifyUTF8(ByteBuffer.wrap(input.getBytes("UTF-8")), out, true).isUnderflow());
+		Assert.assertEquals(encoded, new String(out.array(), 0, out.position(), "ISO-8859-1"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCompactOutOfRange() {
+		instance.unmnemonify("[#20AC,110000]", false);
+	}
+
+	@Test
+	public void testUTF8() throws IOException {
+		String[] inputs = { "Hello", "Für Elisè", "[x]", "\u20ac\ud834\udd1e\u20b9", "\u0301\u0400", "\u0080\u0fff\udbff\udfff" };
+		for (String input : inputs) {
+			byte[] encoded = instance.mnemonifyUTF8(input.getBytes("UTF-8"));
+			Assert.assertEquals(instance.mnemonify(input), new String(encoded, "ISO-8859-1"));
+			Assert.assertEquals(input, new String(instance.unmnemonifyUTF8(encoded, false), "UTF-8"));
+			Assert.assertEquals(input, new String(instance.unmnemonifyUTF8(encoded, true), "UTF-8"));
+		}
+		Assert.assertEquals("]][[Hello][#q][\u20ac", new String(instance.unmnemonifyUTF8("]][[Hello][#q][\u20ac".getBytes("UTF-8"), false), "UTF-8"));
+		Assert.assertEquals("\u20ac[[", new String(instance.unmnemonifyUTF8("[#20ac][[".getBytes("UTF-8"), false), "UTF-8"));
+	}
+
+	@Test
+	public void testUTF8Buffers() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i <= Character.MAX_CODE_POINT; i += 97) {
+			if (Character.isDefined(i) && !Character.isSurrogate((char) i))
+				sb.appendCodePoint(i);
+		}
+		String input = sb.toString();
+		byte[] original = input.getBytes("UTF-8");
+		String expected = instance.mnemonify(input);
+		for (int chunkSize = 1; chunkSize < 20; chunkSize += 6) {
+			ByteBuffer encoded = transcode(original, false, chunkSize);
+			Assert.assertEquals(expected, new String(encoded.array(), 0, encoded.limit(), "ISO-8859-1"));
+			ByteBuffer decoded = transcode(expected.getBytes("ISO-8859-1"), true, chunkSize);
+			Assert.assertEquals(input, new String(decoded.array(), 0, decoded.limit(), "UTF-8"));
+		}
+	}
+
+	@Test
+	public void testUTF8Malformed() throws IOException {
+		ByteBuffer in = ByteBuffer.wrap(new byte[] { 'a', (byte) 0xC3, (byte) 0xA4, (byte) 0xED, (byte) 0xA0, (byte) 0x80 });
+		ByteBuffer out = ByteBuffer.allocate(20);
+		CoderResult result = instance.mnemonifyUTF8(in, out, true);
+		Assert.assertTrue(result.isMalformed());
+		Assert.assertEquals(3, in.position());
+		Assert.assertEquals("a[a:]", new String(out.array(), 0, out.position(), "ISO-8859-1"));
+		in = ByteBuffer.wrap("x[a:]]y".getBytes("ISO-8859-1"));
+		out = ByteBuffer.allocateDirect(20);
+		result = instance.unmnemonifyUTF8(in, out, true, true);
+		Assert.assertTrue(result.isMalformed());
+		Assert.assertEquals(5, in.position());
+		Assert.assertEquals(3, out.position());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUTF8Strict() throws IOException {
+		instance.unmnemonifyUTF8("Lo]vely".getBytes("UTF-8"), true);
+	}
+
+	private ByteBuffer transcode(byte[] input, boolean decode, int chunkSize) {
+		ByteBuffer in = ByteBuffer.allocateDirect(input.length);
+		in.put(input).flip();
+		ByteBuffer out = ByteBuffer.allocate(input.length * 10 + 16);
+		int limit = 0;
+		while (in.hasRemaining() || limit < input.length) {
+			limit = Math.min(limit + chunkSize, input.length);
+			in.limit(limit);
+			ByteBuffer chunk = out.slice();
+			chunk.limit(Math.min(chunkSize + 16, chunk.limit()));
+			CoderResult result = decode ? instance.unmnemonifyUTF8(in, chunk, limit == input.length, true) : instance.mnemonifyUTF8(in, chunk, limit == input.length);
+			Assert.assertFalse(result.isError());
+			out.position(out.position() + chunk.position());
+		}
+		out.flip();
+		return out;
+	}
+
+	@Test
+	public void testAppendable() throws IOException {
+		String input = "x\u4e2d\u6587 [\u00e4\ud834\udd1e]\ud834";
+		Mnemonifier compact = new Mnemonifier(MnemonicTable.getDefault(), true);
+		for (Mnemonifier m : new Mnemonifier[] { instance, compact }) {
+			String encoded = m.mnemonify(input);
+			StringWriter writer = new StringWriter();
+			m.mnemonify("<" + input + ">", 1, input.length() + 1, writer);
+			Assert.assertEquals(encoded, writer.toString());
+			StringBuilder sb = new StringBuilder("<");
+			m.mnemonify(input, 0, input.length(), sb);
+			Assert.assertEquals("<" + encoded, sb.toString());
+			writer = new StringWriter();
+			m.unmnemonify("<" + encoded + ">", 1, encoded.length() + 1, true, writer);
+			Assert.assertEquals(input, writer.toString());
+			sb.setLength(1);
+			m.unmnemonify(encoded, 0, encoded.length(), true, sb);
+			Assert.assertEquals("<" + input, sb.toString());
+		}
+		StringBuilder sb = new StringBuilder("<");
+		try {
+			instance.unmnemonify("ok [#20ac]", 0, 10, true, sb);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals("Invalid input at offset 3", ex.getMessage());
+		}
+		Assert.assertEquals("<", sb.toString());
+	}
+
+	@Test
+	public void testCharBuffers() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i <= Character.MAX_CODE_POINT; i += 97) {
+			if (Character.isDefined(i))
+				sb.appendCodePoint(i);
+		}
+		sb.append("[]\ud834");
+		String input = sb.toString();
+		String expected = instance.mnemonify(input);
+		for (int chunkSize = 1; chunkSize < 20; chunkSize += 6) {
+			Assert.assertEquals(expected, transcode(input, false, chunkSize));
+			Assert.assertEquals(input, transcode(expected, true, chunkSize));
+		}
+		CharBuffer in = CharBuffer.wrap("ab\u20ac"), out = CharBuffer.allocate(5);
+		Assert.assertEquals(CoderResult.OVERFLOW, instance.mnemonify(in, out, true));
+		Assert.assertEquals(2, in.position());
+		Assert.assertEquals(2, out.position());
+		Assert.assertEquals(7, instance.mnemonifiedLength(in));
+		in = CharBuffer.wrap("ok []");
+		out = CharBuffer.allocate(10);
+		Assert.assertTrue(instance.unmnemonify(in, out, true, true).isMalformed());
+		Assert.assertEquals(3, in.position());
+	}
+
+	private String transcode(String input, boolean decode, int chunkSize) {
+		CharBuffer in = CharBuffer.wrap(input.toCharArray());
+		CharBuffer out = CharBuffer.allocate(input.length() * 10 + 16);
+		int limit = 0;
+		while (in.hasRemaining() || limit < input.length()) {
+			limit = Math.min(limit + chunkSize, input.length());
+			in.limit(limit);
+			CharBuffer chunk = out.slice();
+			chunk.limit(Math.min(chunkSize + 16, chunk.limit()));
+			CoderResult result = decode ? instance.unmnemonify(in, chunk, limit == input.length(), true) : instance.mnemonify(in, chunk, limit == input.length());
+			Assert.assertFalse(result.isError());
+			out.position(out.position() + chunk.position());
+		}
+		out.flip();
+		return out.toString();
+	}
+
+	@Test
+	public void testMnemonifiedLength() {
+		Mnemonifier compact = new Mnemonifier(MnemonicTable.getDefault(), true);
+		MyMnemonifier mm = new MyMnemonifier();
+		for (String input : new String[] { "", "Hello", "\u4e2d\u6587 x\u20ac [\ud834\udd1e\ud83d\ude00\u00e4\u20ac\u20b9]\ud834", "\u0000\u0080\u20ac" }) {
+			Assert.assertEquals(instance.mnemonify(input).length(), instance.mnemonifiedLength(input));
+			Assert.assertEquals(compact.mnemonify(input).length(), compact.mnemonifiedLength(input));
+			Assert.assertEquals(mm.mnemonify(input).length(), mm.mnemonifiedLength(input));
+		}
+	}
+
+	@Test
+	public void testTruncate() {
+		Mnemonifier compact = new Mnemonifier(MnemonicTable.getDefault(), true);
+		String input = "ab\u00e4\u20ac\u20b9c\ud834\udd1e";
+		for (Mnemonifier m : new Mnemonifier[] { instance, compact }) {
+			String encoded = m.mnemonify(input);
+			for (int maxLength = 0; maxLength <= encoded.length() + 1; maxLength++) {
+				StringBuilder sb = new StringBuilder("x");
+				int consumed = m.mnemonify(input, 0, input.length(), maxLength, sb);
+				String prefix = m.mnemonify(input.substring(0, consumed));
+				Assert.assertEquals("x" + prefix, sb.toString());
+				Assert.assertTrue(prefix.length() <= maxLength);
+				if (consumed < input.length())
+					Assert.assertTrue(m.mnemonify(input.substring(0, consumed + Character.charCount(input.codePointAt(consumed)))).length() > maxLength);
+			}
+		}
+		StringBuilder sb = new StringBuilder();
+		Assert.assertEquals(3, instance.mnemonify(input, 0, input.length(), 12, sb));
+		Assert.assertEquals("ab[a:]", sb.toString());
+		sb.setLength(0);
+		Assert.assertEquals(5, compact.mnemonify(input, 0, input.length(), 18, sb));
+		Assert.assertEquals("ab[a:][#20AC,20B9]", sb.toString());
+	}
+
 	@Test(expected = IllegalStateException.class)
 	public void testLoadFailure() {
-		Mnemonifier.loadMaps(new InputStream() {
+		MnemonicTable.load(new InputStream() {
 			public int read() throws IOException {
 				throw new IOException("Read fails always!");
 			}
@@ -104,14 +349,19 @@ public class MnemonifierTest {
 	private void testSingle(String input, String encoded) {
 		Mnemonifier m = instance;
 		Assert.assertEquals(encoded, m.mnemonify(input));
+		Assert.assertEquals(encoded.length(), m.mnemonifiedLength(input));
 		Assert.assertEquals(input, m.unmnemonify(encoded));
 		Assert.assertEquals(input, m.unmnemonify(encoded, true));
+		Assert.assertEquals(-1, m.validate(encoded));
+		Assert.assertEquals(input, m.tryUnmnemonify(encoded).getValue());
+		Assert.assertEquals(-1, m.tryUnmnemonify(encoded).getErrorOffset());
 	}
 
 	private void testRoundtrip(String input) {
 		Mnemonifier m = instance;
 		String encoded = m.mnemonify(input);
 		Assert.assertTrue(encoded.matches("[\0-\u007f]+"));
+		Assert.assertEquals(encoded.length(), m.mnemonifiedLength(input));
 		Assert.assertEquals(input, m.unmnemonify(encoded));
 		Assert.assertEquals(input, m.unmnemonify(encoded, true));
 	}
@@ -0,0 +1,121 @@
+package net.sf.mnemonifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+@SuppressWarnings("javadoc")
+public class MnemonifierToolTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Mnemonifier instance;
+	private ByteArrayOutputStream out, err;
+
+	@Before
+	public void setUp() {
+		instance = new Mnemonifier();
+		out = new ByteArrayOutputStream();
+		err = new ByteArrayOutputStream();
+	}
+
+	@Test
+	public void testDirectory() throws Exception {
+		File input = folder.newFolder("input");
+		byte[][] contents = new byte[][] {
+				"Hello World".getBytes("UTF-8"),
+				new byte[0],
+				"Ǹ [a!] € 𝄞 [#20AC{x[a:]}] [ ]".getBytes("UTF-8"),
+				repeat("Größe [#20AC{a[b]c}] 𝄞𝄞 ]]][[[ ", 1000).getBytes("UTF-8"),
+		};
+		for (int i = 0; i < contents.length; i++) {
+			write(new File(input, "sub" + (i % 2) + "/file" + i + ".txt"), contents[i]);
+		}
+		Assert.assertEquals(0, run("-c", "7", "-t", "3", "-o", folder.getRoot() + "/encoded", input.getPath()));
+		Assert.assertEquals(0, run("-u", "-s", "-c", "5", "-o", folder.getRoot() + "/decoded", folder.getRoot() + "/encoded/input"));
+		for (int i = 0; i < contents.length; i++) {
+			String name = "input/sub" + (i % 2) + "/file" + i + ".txt";
+			byte[] encoded = read(new File(folder.getRoot(), "encoded/" + name));
+			Assert.assertArrayEquals(instance.mnemonifyUTF8(contents[i]), encoded);
+			Assert.assertArrayEquals(contents[i], read(new File(folder.getRoot(), "decoded/" + name)));
+		}
+		Assert.assertTrue(new String(out.toByteArray(), "UTF-8").contains("Total (4 files)"));
+		Assert.assertEquals("", new String(err.toByteArray(), "UTF-8"));
+	}
+
+	@Test
+	public void testSingleFile() throws Exception {
+		byte[] content = repeat("[a![#41{[[]]}][xyz] ]", 100).getBytes("UTF-8");
+		File input = folder.newFile("input.txt");
+		write(input, content);
+		File output = new File(folder.getRoot(), "output.txt");
+		for (int chunkSize : new int[] { 1, 3, 10, 1000 }) {
+			Assert.assertEquals(0, run("-u", "-c", "" + chunkSize, "-o", output.getPath(), input.getPath()));
+			Assert.assertArrayEquals(instance.unmnemonifyUTF8(content, false), read(output));
+		}
+	}
+
+	@Test
+	public void testCompact() throws Exception {
+		Mnemonifier compact = new Mnemonifier(MnemonicTable.getDefault(), true);
+		byte[] content = (repeat("͸𝄞", 500) + " [x] " + repeat("中文 ", 100)).getBytes("UTF-8");
+		File input = folder.newFile("input.txt");
+		write(input, content);
+		File output = new File(folder.getRoot(), "output.txt");
+		for (int chunkSize : new int[] { 1, 3, 10, 1000, 100000 }) {
+			Assert.assertEquals(0, run("-g", "-c", "" + chunkSize, "-t", "3", "-o", output.getPath(), input.getPath()));
+			Assert.assertArrayEquals(compact.mnemonifyUTF8(content), read(output));
+		}
+	}
+
+	@Test
+	public void testInvalid() throws Exception {
+		File input = folder.newFile("input.txt");
+		write(input, "valid [a!] text, then ] invalid".getBytes("UTF-8"));
+		File output = new File(folder.getRoot(), "output.txt");
+		Assert.assertEquals(1, run("-u", "-s", "-c", "4", "-o", output.getPath(), input.getPath()));
+		Assert.assertFalse(output.exists());
+		Assert.assertTrue(new String(err.toByteArray(), "UTF-8").contains("Invalid input at offset 22"));
+		Assert.assertEquals(2, run("-x", input.getPath()));
+	}
+
+	private int run(String... args) throws IOException {
+		return MnemonifierTool.run(args, new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8"));
+	}
+
+	private static String repeat(String s, int count) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sb.append(s);
+		}
+		return sb.toString();
+	}
+
+	private static void write(File file, byte[] content) throws IOException {
+		file.getParentFile().mkdirs();
+		OutputStream os = new FileOutputStream(file);
+		os.write(content);
+		os.close();
+	}
+
+	private static byte[] read(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		byte[] result = new byte[(int) file.length()];
+		int length = 0;
+		while (length < result.length) {
+			length += in.read(result, length, result.length - length);
+		}
+		in.close();
+		return Arrays.copyOf(result, length);
+	}
+}
@@ -0,0 +1,44 @@
+package net.sf.mnemonifier;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class MnemonifyingEncoderTest {
+
+	private Mnemonifier instance;
+
+	@Before
+	public void setUp() {
+		instance = new Mnemonifier();
+	}
+
+	@Test
+	public void testChunks() {
+		String input = "Für [x] 中文€𝄞😀 \ud834!\udd1e\ud834";
+		for (Mnemonifier m : new Mnemonifier[] { instance, new Mnemonifier(MnemonicTable.getDefault(), true) }) {
+			MnemonifyingEncoder encoder = new MnemonifyingEncoder(m);
+			for (int chunkSize = 1; chunkSize < 6; chunkSize++) {
+				StringBuilder sb = new StringBuilder();
+				for (int i = 0; i < input.length(); i += chunkSize) {
+					encoder.encode(input.substring(i, Math.min(i + chunkSize, input.length())), sb);
+					encoder.encode("", sb);
+				}
+				encoder.finish(sb);
+				Assert.assertEquals(m.mnemonify(input), sb.toString());
+			}
+		}
+	}
+
+	@Test
+	public void testPendingSurrogate() {
+		MnemonifyingEncoder encoder = new MnemonifyingEncoder(instance);
+		StringBuilder sb = new StringBuilder();
+		encoder.encode("a\ud834", sb);
+		Assert.assertEquals("a", sb.toString());
+		encoder.encode("\udd1e", sb);
+		Assert.assertEquals("a[#1D11E]", sb.toString());
+		encoder.encode("\ud834", sb);
+		encoder.finish(sb);
+		Assert.assertEquals("a[#1D11E][#D834]", sb.toString());
+	}
+}
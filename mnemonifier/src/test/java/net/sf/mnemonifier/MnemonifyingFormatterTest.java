@@ -0,0 +1,56 @@
+package net.sf.mnemonifier;
+
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class MnemonifyingFormatterTest {
+
+	private Mnemonifier instance;
+
+	@Before
+	public void setUp() {
+		instance = new Mnemonifier();
+	}
+
+	@Test
+	public void testFormat() {
+		MnemonifyingFormatter formatter = new MnemonifyingFormatter(new MessageFormatter(), instance);
+		Assert.assertEquals("Gr[o:][ss]e [#20AC] [[]x[]]\n", formatter.format(new LogRecord(Level.INFO, "Größe € [x]")));
+		Assert.assertEquals("<[a:]>", formatter.getHead(null));
+		Assert.assertEquals("</[a:]>", formatter.getTail(null));
+		Assert.assertSame(instance, formatter.getMnemonifier());
+	}
+
+	@Test
+	public void testDefault() {
+		MnemonifyingFormatter formatter = new MnemonifyingFormatter();
+		String result = formatter.format(new LogRecord(Level.INFO, "Größe"));
+		Assert.assertTrue(result, result.contains("Gr[o:][ss]e"));
+		for (int i = 0; i < result.length(); i++) {
+			Assert.assertTrue(result.charAt(i) < 128);
+		}
+	}
+
+	static class MessageFormatter extends Formatter {
+
+		@Override
+		public String format(LogRecord record) {
+			return record.getMessage() + "\n";
+		}
+
+		@Override
+		public String getHead(Handler h) {
+			return "<ä>";
+		}
+
+		@Override
+		public String getTail(Handler h) {
+			return "</ä>";
+		}
+	}
+}
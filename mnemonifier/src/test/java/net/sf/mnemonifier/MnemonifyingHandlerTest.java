@@ -0,0 +1,105 @@
+package net.sf.mnemonifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class MnemonifyingHandlerTest {
+
+	private Mnemonifier instance;
+
+	@Before
+	public void setUp() {
+		instance = new Mnemonifier();
+	}
+
+	@Test
+	public void testPublish() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MnemonifyingHandler handler = new MnemonifyingHandler(out, instance, 16, MnemonifyingHandler.OverflowPolicy.BLOCK);
+		handler.setFormatter(new MnemonifyingFormatterTest.MessageFormatter());
+		StringBuilder expected = new StringBuilder("<ä>");
+		for (int i = 0; i < 100; i++) {
+			String message = "Größe " + i + " € [x] 𝄞";
+			handler.publish(new LogRecord(Level.INFO, message));
+			expected.append(message).append('\n');
+		}
+		handler.flush();
+		Assert.assertEquals(instance.mnemonify(expected.toString()), out.toString("US-ASCII"));
+		handler.setLevel(Level.WARNING);
+		handler.publish(new LogRecord(Level.INFO, "ignored"));
+		handler.close();
+		expected.append("</ä>");
+		Assert.assertEquals(instance.mnemonify(expected.toString()), out.toString("US-ASCII"));
+		handler.publish(new LogRecord(Level.SEVERE, "closed"));
+		Assert.assertEquals(0, handler.getDroppedCount());
+	}
+
+	@Test
+	public void testMnemonifyingFormatter() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MnemonifyingHandler handler = new MnemonifyingHandler(out, instance, 16, MnemonifyingHandler.OverflowPolicy.BLOCK);
+		Mnemonifier compact = new Mnemonifier(MnemonicTable.getDefault(), true);
+		handler.setFormatter(new MnemonifyingFormatter(new MnemonifyingFormatterTest.MessageFormatter(), compact));
+		handler.publish(new LogRecord(Level.INFO, "中文"));
+		handler.close();
+		Assert.assertEquals(compact.mnemonify("<ä>中文\n</ä>"), out.toString("US-ASCII"));
+	}
+
+	@Test
+	public void testOverflow() throws Exception {
+		for (MnemonifyingHandler.OverflowPolicy policy : MnemonifyingHandler.OverflowPolicy.values()) {
+			final CountDownLatch latch = new CountDownLatch(1);
+			ByteArrayOutputStream out = new ByteArrayOutputStream() {
+				@Override
+				public synchronized void write(byte[] b, int off, int len) {
+					try {
+						latch.await();
+					} catch (InterruptedException ex) {
+						throw new RuntimeException(ex);
+					}
+					super.write(b, off, len);
+				}
+			};
+			final MnemonifyingHandler handler = new MnemonifyingHandler(out, instance, 4, policy);
+			handler.setFormatter(new MnemonifyingFormatterTest.MessageFormatter());
+			final int threads = 4, count = 1000;
+			List<Thread> producers = new ArrayList<Thread>();
+			for (int t = 0; t < threads; t++) {
+				Thread thread = new Thread() {
+					@Override
+					public void run() {
+						for (int i = 0; i < count; i++) {
+							handler.publish(new LogRecord(Level.INFO, "ä"));
+						}
+					}
+				};
+				thread.start();
+				producers.add(thread);
+			}
+			if (policy == MnemonifyingHandler.OverflowPolicy.DROP) {
+				for (Thread thread : producers) {
+					thread.join();
+				}
+				Assert.assertTrue(handler.getDroppedCount() > 0);
+			}
+			latch.countDown();
+			for (Thread thread : producers) {
+				thread.join();
+			}
+			handler.close();
+			String output = out.toString("US-ASCII");
+			int lines = output.split("\n").length - 1;
+			Assert.assertEquals(policy.toString(), threads * count, lines + handler.getDroppedCount());
+			if (policy == MnemonifyingHandler.OverflowPolicy.BLOCK)
+				Assert.assertEquals(0, handler.getDroppedCount());
+		}
+	}
+}
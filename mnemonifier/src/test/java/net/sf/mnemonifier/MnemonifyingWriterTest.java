@@ -0,0 +1,90 @@
+package net.sf.mnemonifier;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class MnemonifyingWriterTest {
+
+	private Mnemonifier instance;
+
+	@Before
+	public void setUp() {
+		instance = new Mnemonifier();
+	}
+
+	@Test
+	public void testSimple() throws IOException {
+		testSingle("Hello");
+		testSingle("Für Elisè");
+		testSingle("[x]");
+		testSingle("€𝄞₹");
+		testSingle("́Ѐ");
+		testSingle("lone \ud834 and \udd1e surrogates\ud834");
+	}
+
+	@Test
+	public void testRoundtripSurrogates() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i <= Character.MAX_CODE_POINT; i += 7) {
+			if (Character.isDefined(i))
+				sb.appendCodePoint(i);
+		}
+		testSingle(sb.toString());
+	}
+
+	@Test
+	public void testCompact() throws IOException {
+		Mnemonifier compact = new Mnemonifier(MnemonicTable.getDefault(), true);
+		String input = "中文 x€ 𝄞😀ä€₹[中]\ud834";
+		for (int chunkSize = 1; chunkSize < 5; chunkSize++) {
+			StringWriter sw = new StringWriter();
+			MnemonifyingWriter w = new MnemonifyingWriter(sw, compact, 3);
+			for (int i = 0; i < input.length(); i += chunkSize) {
+				w.write(input, i, Math.min(chunkSize, input.length() - i));
+			}
+			w.close();
+			Assert.assertEquals(compact.mnemonify(input), sw.toString());
+		}
+		StringWriter sw = new StringWriter();
+		MnemonifyingWriter w = new MnemonifyingWriter(sw, compact);
+		w.write("中文");
+		w.flush();
+		Assert.assertEquals("[#4E2D,6587]", sw.toString());
+		w.write("中");
+		w.close();
+		Assert.assertEquals("[#4E2D,6587][#4E2D]", sw.toString());
+		Assert.assertEquals("中文中", instance.unmnemonify(sw.toString(), true));
+	}
+
+	@Test(expected = IOException.class)
+	public void testClosed() throws IOException {
+		MnemonifyingWriter w = new MnemonifyingWriter(new StringWriter(), instance);
+		w.close();
+		w.write("x");
+	}
+
+	private void testSingle(String input) throws IOException {
+		String expected = instance.mnemonify(input);
+		for (int chunkSize = 1; chunkSize < 5; chunkSize++) {
+			for (int bufferSize = 1; bufferSize < 20; bufferSize += 9) {
+				StringWriter sw = new StringWriter();
+				MnemonifyingWriter w = new MnemonifyingWriter(sw, instance, bufferSize);
+				for (int i = 0; i < input.length(); i += chunkSize) {
+					w.write(input.toCharArray(), i, Math.min(chunkSize, input.length() - i));
+				}
+				w.close();
+				Assert.assertEquals(expected, sw.toString());
+			}
+		}
+		StringWriter sw = new StringWriter();
+		MnemonifyingWriter w = new MnemonifyingWriter(sw, instance);
+		w.write(input);
+		w.flush();
+		Assert.assertTrue(expected.startsWith(sw.toString()));
+		w.close();
+		Assert.assertEquals(expected, sw.toString());
+	}
+}
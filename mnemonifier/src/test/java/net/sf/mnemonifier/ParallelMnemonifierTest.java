@@ -0,0 +1,81 @@
+package net.sf.mnemonifier;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class ParallelMnemonifierTest {
+
+	private static final String[] PARTS = { "[", "]", "#", "{", "}", "a", ":", "!", "0", "A", "f", "20AC", "110000", "[a:]", "x", "[#", "[[]", "[]]", "ä", "𝄞", "\ud834", "[#20AC{xx[a:]xx}]", "Hello World ", "中", "€", "😀", "," };
+
+	private Mnemonifier instance, compact;
+	private ForkJoinPool pool;
+
+	@Before
+	public void setUp() {
+		instance = new Mnemonifier();
+		compact = new Mnemonifier(MnemonicTable.getDefault(), true);
+		pool = new ForkJoinPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testRoundtrip() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i <= Character.MAX_CODE_POINT; i++) {
+			if (Character.isDefined(i))
+				sb.appendCodePoint(i);
+		}
+		String input = sb.toString();
+		String encoded = instance.mnemonify(input);
+		for (int chunkSize : new int[] { 1, 7, 1000, 1 << 20 }) {
+			ParallelMnemonifier pm = new ParallelMnemonifier(instance, pool, chunkSize);
+			Assert.assertEquals(encoded, pm.mnemonify(input));
+			Assert.assertEquals(input, pm.unmnemonify(encoded, true));
+			Assert.assertEquals(input, pm.unmnemonify(encoded, false));
+		}
+	}
+
+	@Test
+	public void testAscii() {
+		String input = "Hello World! ";
+		while (input.length() < 1000)
+			input += input;
+		Assert.assertEquals(input, new ParallelMnemonifier(instance, pool, 10).mnemonify(input));
+	}
+
+	@Test
+	public void testRandom() {
+		Random random = new Random(42);
+		for (int i = 0; i < 2000; i++) {
+			StringBuilder sb = new StringBuilder();
+			int length = random.nextInt(40);
+			for (int j = 0; j < length; j++) {
+				sb.append(PARTS[random.nextInt(PARTS.length)]);
+			}
+			String input = sb.toString();
+			ParallelMnemonifier pm = new ParallelMnemonifier(instance, pool, 1 + random.nextInt(10));
+			Assert.assertEquals(instance.mnemonify(input), pm.mnemonify(input));
+			Assert.assertEquals(compact.mnemonify(input), new ParallelMnemonifier(compact, pool, 1 + random.nextInt(10)).mnemonify(input));
+			for (boolean strict : new boolean[] { false, true }) {
+				Assert.assertEquals(decode(instance, input, strict), decode(pm, input, strict));
+			}
+		}
+	}
+
+	private static String decode(Object decoder, String input, boolean strict) {
+		try {
+			if (decoder instanceof Mnemonifier)
+				return ((Mnemonifier) decoder).unmnemonify(input, strict);
+			return ((ParallelMnemonifier) decoder).unmnemonify(input, strict);
+		} catch (IllegalArgumentException ex) {
+			return "<invalid>";
+		}
+	}
+}
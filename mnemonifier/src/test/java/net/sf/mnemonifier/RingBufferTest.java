@@ -0,0 +1,70 @@
+package net.sf.mnemonifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class RingBufferTest {
+
+	@Test
+	public void testSimple() {
+		RingBuffer<Integer> buffer = new RingBuffer<Integer>(3);
+		Assert.assertNull(buffer.poll());
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < 4; i++) {
+				Assert.assertTrue(buffer.offer(i));
+			}
+			Assert.assertFalse(buffer.offer(4));
+			for (int i = 0; i < 4; i++) {
+				Assert.assertEquals(Integer.valueOf(i), buffer.poll());
+			}
+			Assert.assertNull(buffer.poll());
+		}
+		Assert.assertEquals(12, buffer.getHead());
+		Assert.assertEquals(12, buffer.getTail());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCapacity() {
+		new RingBuffer<Integer>(0);
+	}
+
+	@Test
+	public void testConcurrent() throws InterruptedException {
+		final RingBuffer<Integer> buffer = new RingBuffer<Integer>(16);
+		final int producers = 4, count = 100000;
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int p = 0; p < producers; p++) {
+			final int producer = p;
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < count; i++) {
+						while (!buffer.offer(producer * count + i)) {
+							Thread.yield();
+						}
+					}
+				}
+			};
+			thread.start();
+			threads.add(thread);
+		}
+		int[] next = new int[producers];
+		for (int received = 0; received < producers * count;) {
+			Integer value = buffer.poll();
+			if (value == null) {
+				Thread.yield();
+				continue;
+			}
+			int producer = value / count;
+			Assert.assertEquals(next[producer]++, value % count);
+			received++;
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertNull(buffer.poll());
+	}
+}
@@ -0,0 +1,79 @@
+package net.sf.mnemonifier;
+
+import java.util.Random;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class UnmnemonifiedSequenceTest {
+
+	private Mnemonifier instance;
+
+	@Before
+	public void setUp() {
+		instance = new Mnemonifier();
+	}
+
+	@Test
+	public void testRandomAccess() {
+		String[] pieces = { "a", "b", "[", "]", "ß", "€", "中", "文", "𝄞", "\ud800" };
+		Mnemonifier compact = new Mnemonifier(instance.getTable(), true);
+		Random random = new Random(42);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			sb.append(pieces[random.nextInt(pieces.length)]);
+		}
+		String original = sb.toString();
+		for (Mnemonifier m : new Mnemonifier[] { instance, compact }) {
+			UnmnemonifiedSequence view = m.unmnemonifyLazily(m.mnemonify(original), true);
+			for (int i = 0; i < 1000; i++) {
+				int index = random.nextInt(original.length());
+				Assert.assertEquals(original.charAt(index), view.charAt(index));
+			}
+			Assert.assertEquals(original.length(), view.length());
+			Assert.assertEquals(original, view.toString());
+			Assert.assertEquals(original.substring(100, 200), view.subSequence(100, 200));
+			Assert.assertTrue(view.startsWith(original.substring(0, 50)));
+			Assert.assertTrue(view.regionMatches(77, original, 77, 300));
+			Assert.assertFalse(view.regionMatches(77, original, 78, 300));
+			Assert.assertFalse(view.regionMatches(original.length() - 5, original, 0, 10));
+			for (int i = 0; i < original.length(); i++) {
+				Assert.assertEquals(original.charAt(i), view.charAt(i));
+			}
+		}
+	}
+
+	@Test
+	public void testPrefix() {
+		UnmnemonifiedSequence view = instance.unmnemonifyLazily("Gr[o:][ss]e [#20AC,1D11E] [#110000]", false);
+		Assert.assertTrue(view.startsWith("Größe €𝄞 "));
+		Assert.assertFalse(view.startsWith("Grosse"));
+		Assert.assertEquals('\ud834', view.charAt(7));
+		Assert.assertEquals('\udd1e', view.charAt(8));
+		Assert.assertEquals("]][[x[#q][", instance.unmnemonifyLazily("]][[x[#q][", false).toString());
+		Assert.assertEquals(10, instance.unmnemonifyLazily("]][[x[#q][", false).length());
+		try {
+			view.length();
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+		}
+	}
+
+	@Test
+	public void testStrict() {
+		UnmnemonifiedSequence view = instance.unmnemonifyLazily("abc]def", true);
+		Assert.assertEquals('c', view.charAt(2));
+		try {
+			view.charAt(4);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals("Invalid input at offset 3", ex.getMessage());
+		}
+		Assert.assertEquals("abc]def", instance.unmnemonifyLazily("abc]def", false).toString());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOutOfBounds() {
+		instance.unmnemonifyLazily("[a:]b", true).charAt(2);
+	}
+}
@@ -0,0 +1,84 @@
+package net.sf.mnemonifier;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class UnmnemonifyingDecoderTest {
+
+	private Mnemonifier instance;
+
+	@Before
+	public void setUp() {
+		instance = new Mnemonifier();
+	}
+
+	@Test
+	public void testChunks() {
+		testChunks("F[u:]r [[]x[]] [#4E2D,6587][#20AC{EUR}][#1D11E][1000RCD]", true);
+		testChunks("]][[Hello][#q][#20AC{x[a:]}z[#20AC{}]]", false);
+		testChunks("[#123{4}", false);
+		testChunks("[#20AC,", false);
+	}
+
+	@Test
+	public void testSplitToken() {
+		UnmnemonifyingDecoder decoder = new UnmnemonifyingDecoder(instance, true);
+		StringBuilder sb = new StringBuilder();
+		decoder.decode("a[#20", sb);
+		Assert.assertEquals("a", sb.toString());
+		decoder.decode("AC{EU", sb);
+		Assert.assertEquals("a", sb.toString());
+		decoder.decode("R}][", sb);
+		Assert.assertEquals("a€", sb.toString());
+		decoder.decode("[]", sb);
+		decoder.finish(sb);
+		Assert.assertEquals("a€[", sb.toString());
+	}
+
+	@Test
+	public void testLongInfo() {
+		StringBuilder info = new StringBuilder();
+		while (info.length() < 10000)
+			info.append("abcdefghij");
+		String input = "[#20AC{" + info + "}]";
+		Assert.assertEquals(input, decode(input, false, 100));
+		try {
+			decode(input, true, 100);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals("Token too long at offset 0", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testStrictOffset() {
+		try {
+			decode("Hello [a:] World [#q]", true, 3);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals("Invalid input at offset 17", ex.getMessage());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testStrictIncomplete() {
+		decode("Hi[#20AC", true, 2);
+	}
+
+	private void testChunks(String input, boolean strict) {
+		String expected = instance.unmnemonify(input, strict);
+		for (int chunkSize = 1; chunkSize < 6; chunkSize++) {
+			Assert.assertEquals(expected, decode(input, strict, chunkSize));
+		}
+	}
+
+	private String decode(String input, boolean strict, int chunkSize) {
+		UnmnemonifyingDecoder decoder = new UnmnemonifyingDecoder(instance, strict);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < input.length(); i += chunkSize) {
+			decoder.decode(input.substring(i, Math.min(i + chunkSize, input.length())), sb);
+		}
+		decoder.finish(sb);
+		return sb.toString();
+	}
+}
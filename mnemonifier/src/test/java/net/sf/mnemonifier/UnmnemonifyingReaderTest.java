@@ -0,0 +1,121 @@
+package net.sf.mnemonifier;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.junit.*;
+
+@SuppressWarnings("javadoc")
+public class UnmnemonifyingReaderTest {
+
+	private Mnemonifier instance;
+
+	@Before
+	public void setUp() {
+		instance = new Mnemonifier();
+	}
+
+	@Test
+	public void testSimple() throws IOException {
+		testSingle("Hello", true);
+		testSingle("F[u:]r Elis[e!]", true);
+		testSingle("[[]x[]]", true);
+		testSingle("[#20AC][#1D11E][#20B9]", true);
+		testSingle("[#20AC{EUR}][|'][E=|!]", true);
+		testSingle("[1000RCD][a*|==,|=?|--,]", true);
+	}
+
+	@Test
+	public void testLaxDecoding() throws IOException {
+		testSingle("]][[Hello][#q][", false);
+		testSingle("[#20ac][[", false);
+		testSingle("[#20AC{x[a:]}z[#20AC{}]]", false);
+		for (int i = 0; i < 8; i++) {
+			testSingle("[#123{4}".substring(0, i), false);
+		}
+	}
+
+	@Test
+	public void testLongInfo() throws IOException {
+		Assert.assertEquals("[#20AC{abcdefghijk}]", read("[#20AC{abcdefghijk}]", false, 1, 10));
+		Assert.assertEquals("€", read("[#20AC{abcdefghijk}]", false, 1, 30));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLongInfoStrict() throws IOException {
+		read("[#20AC{abcdefghijk}]", true, 1, 10);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testStrictDecoding1() throws IOException {
+		read("]][[Hello][#q][", true, 3, 100);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testStrictDecoding2() throws IOException {
+		read("Hi[", true, 1, 100);
+	}
+
+	@Test
+	public void testErrorOffset() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			sb.append("[a:]bc");
+		}
+		String valid = sb.toString();
+		for (String invalid : new String[] { "[#q]", "[#110000]", "[" }) {
+			try {
+				read(valid + invalid, true, 7, 16);
+				Assert.fail(invalid);
+			} catch (IllegalArgumentException ex) {
+				Assert.assertEquals("Invalid input at offset " + valid.length(), ex.getMessage());
+			}
+		}
+		try {
+			read(valid + "[#20AC{abcdefghijklmnopqrstuvwxyz}]", true, 7, 16);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals("Invalid input at offset " + valid.length(), ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testRoundtrip() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i <= Character.MAX_CODE_POINT; i += 7) {
+			if (Character.isDefined(i))
+				sb.appendCodePoint(i);
+		}
+		testSingle(instance.mnemonify(sb.toString()), true);
+	}
+
+	private void testSingle(String encoded, boolean strict) throws IOException {
+		String expected = instance.unmnemonify(encoded, strict);
+		for (int chunkSize = 1; chunkSize < 5; chunkSize++) {
+			for (int bufferSize = 16; bufferSize < 40; bufferSize += 11) {
+				Assert.assertEquals(expected, read(encoded, strict, chunkSize, bufferSize));
+			}
+		}
+		if (!strict)
+			Assert.assertEquals(expected, read(encoded, strict, 1000, 8192));
+	}
+
+	private String read(String encoded, boolean strict, final int chunkSize, int bufferSize) throws IOException {
+		Reader chunked = new StringReader(encoded) {
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				return super.read(cbuf, off, Math.min(len, chunkSize));
+			}
+		};
+		Reader r = new UnmnemonifyingReader(chunked, instance, strict, bufferSize);
+		StringBuilder sb = new StringBuilder();
+		char[] buf = new char[3];
+		int len;
+		while ((len = r.read(buf, 0, buf.length)) != -1) {
+			sb.append(buf, 0, len);
+		}
+		r.close();
+		return sb.toString();
+	}
+}